@@ -0,0 +1,309 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.logging.Logger;
+import org.jboss.virtual.plugins.vfs.VirtualFileURLConnection;
+import org.jboss.virtual.plugins.vfs.helpers.AsyncExecution;
+
+/**
+ * The files whose contents were read, by vfs url in the order they were first read.<p>
+ *
+ * Record one during a start with {@link #startRecording()}, save it with
+ * {@link #write(OutputStream)}, and on the next start pass what {@link #read(InputStream)}
+ * gives to {@link VFS#preload(AccessProfile)}, which reads the same files in the same
+ * order in the background, so archives are indexed and their contents are in the
+ * operating system's cache before they are needed.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class AccessProfile
+{
+   /** The log */
+   private static final Logger log = Logger.getLogger(AccessProfile.class);
+
+   /** The encoding of saved profiles */
+   private static final String ENCODING = "UTF-8";
+
+   /** The profile being recorded */
+   private static final AtomicReference<AccessProfile> recording = new AtomicReference<AccessProfile>();
+
+   /** The urls in first access order */
+   private final Set<String> urls = new LinkedHashSet<String>();
+
+   /**
+    * Create a new empty AccessProfile.
+    */
+   public AccessProfile()
+   {
+   }
+
+   /**
+    * Create a new AccessProfile.
+    *
+    * @param urls the vfs urls in access order
+    * @throws IllegalArgumentException for null urls
+    */
+   public AccessProfile(Collection<String> urls)
+   {
+      if (urls == null)
+         throw new IllegalArgumentException("Null urls");
+      this.urls.addAll(urls);
+   }
+
+   /**
+    * Start recording the files read through any virtual file
+    *
+    * @return the profile being recorded
+    * @throws IllegalStateException if a profile is already being recorded
+    */
+   public static AccessProfile startRecording()
+   {
+      AccessProfile profile = new AccessProfile();
+      if (recording.compareAndSet(null, profile) == false)
+         throw new IllegalStateException("Already recording an access profile");
+      return profile;
+   }
+
+   /**
+    * Stop recording into this profile, does nothing if it is not being recorded
+    */
+   public void stopRecording()
+   {
+      recording.compareAndSet(this, null);
+   }
+
+   /**
+    * Record that a file was read, if a profile is being recorded
+    *
+    * @param file the file
+    */
+   static void recordAccess(VirtualFile file)
+   {
+      AccessProfile profile = recording.get();
+      if (profile != null)
+         profile.add(file);
+   }
+
+   /**
+    * Add a file
+    *
+    * @param file the file
+    */
+   private void add(VirtualFile file)
+   {
+      try
+      {
+         String url = file.toURL().toString();
+         synchronized (urls)
+         {
+            urls.add(url);
+         }
+      }
+      catch (Exception e)
+      {
+         log.debug("Not recording " + file, e);
+      }
+   }
+
+   /**
+    * Get the vfs urls
+    *
+    * @return the urls in first access order
+    */
+   public List<String> getURLs()
+   {
+      synchronized (urls)
+      {
+         return new ArrayList<String>(urls);
+      }
+   }
+
+   /**
+    * Save the profile, one url per line. The stream is not closed.
+    *
+    * @param os the output stream
+    * @throws IOException for any error writing the stream
+    * @throws IllegalArgumentException for a null stream
+    */
+   public void write(OutputStream os) throws IOException
+   {
+      if (os == null)
+         throw new IllegalArgumentException("Null output stream");
+
+      Writer writer = new OutputStreamWriter(os, ENCODING);
+      for (String url : getURLs())
+      {
+         writer.write(url);
+         writer.write('\n');
+      }
+      writer.flush();
+   }
+
+   /**
+    * Read a saved profile. The stream is not closed.
+    *
+    * @param is the input stream
+    * @return the profile
+    * @throws IOException for any error reading the stream
+    * @throws IllegalArgumentException for a null stream
+    */
+   public static AccessProfile read(InputStream is) throws IOException
+   {
+      if (is == null)
+         throw new IllegalArgumentException("Null input stream");
+
+      List<String> urls = new ArrayList<String>();
+      BufferedReader reader = new BufferedReader(new InputStreamReader(is, ENCODING));
+      String line;
+      while ((line = reader.readLine()) != null)
+      {
+         line = line.trim();
+         if (line.length() > 0)
+            urls.add(line);
+      }
+      return new AccessProfile(urls);
+   }
+
+   /**
+    * Read the files in the background, in the recorded order.
+    *
+    * @return the progress, holding the number of files read when done
+    */
+   WarmupFuture replay()
+   {
+      Replay replay = new Replay(getURLs());
+      AsyncExecution.execute(replay);
+      return replay;
+   }
+
+   /**
+    * Reads the files one after the other, files that no longer exist are skipped.
+    * The reads go around the virtual file so a replay is not recorded itself.
+    */
+   private static class Replay extends FutureTask<Integer> implements WarmupFuture
+   {
+      /** The number of files read */
+      private final AtomicInteger read;
+
+      /** The number of bytes read */
+      private final AtomicLong bytes;
+
+      /**
+       * Create a new Replay.
+       *
+       * @param urls the urls
+       */
+      public Replay(List<String> urls)
+      {
+         this(urls, new AtomicInteger(), new AtomicLong());
+      }
+
+      /**
+       * Create a new Replay.
+       *
+       * @param urls the urls
+       * @param read the number of files read
+       * @param bytes the number of bytes read
+       */
+      private Replay(final List<String> urls, final AtomicInteger read, final AtomicLong bytes)
+      {
+         super(new Callable<Integer>()
+         {
+            public Integer call()
+            {
+               byte[] buffer = new byte[8192];
+               for (String url : urls)
+               {
+                  try
+                  {
+                     InputStream in = openStream(new URL(url));
+                     try
+                     {
+                        int n;
+                        while ((n = in.read(buffer)) != -1)
+                           bytes.addAndGet(n);
+                     }
+                     finally
+                     {
+                        in.close();
+                     }
+                     read.incrementAndGet();
+                  }
+                  catch (Exception e)
+                  {
+                     log.debug("Skipping " + url, e);
+                  }
+               }
+               return read.get();
+            }
+         });
+         this.read = read;
+         this.bytes = bytes;
+      }
+
+      /**
+       * Open a url, going through the vfs url cache for vfs urls
+       *
+       * @param url the url
+       * @return the stream
+       * @throws IOException for any error
+       */
+      private static InputStream openStream(URL url) throws IOException
+      {
+         URLConnection connection = url.openConnection();
+         if (connection instanceof VirtualFileURLConnection)
+            return ((VirtualFileURLConnection) connection).getContent().getHandler().openStream();
+         return connection.getInputStream();
+      }
+
+      public int getIndexedCount()
+      {
+         return read.get();
+      }
+
+      public long getPrefetchedBytes()
+      {
+         return bytes.get();
+      }
+   }
+}
@@ -24,8 +24,16 @@ package org.jboss.virtual;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
+import org.jboss.virtual.plugins.vfs.helpers.AsyncExecution;
+import org.jboss.virtual.plugins.vfs.helpers.ParallelVisit;
+import org.jboss.virtual.plugins.vfs.helpers.Warmup;
 import org.jboss.virtual.plugins.vfs.helpers.WrappingVirtualFileHandlerVisitor;
 import org.jboss.virtual.plugins.context.VfsArchiveBrowserFactory;
 import org.jboss.virtual.spi.VFSContext;
@@ -119,6 +127,29 @@ public class VFS
       return vfs.findChild(name);
    }
 
+   /**
+    * Get the root virtual file in the background, opening
+    * an archive root can take a while for large archives.
+    *
+    * @param rootURI the root uri
+    * @return the future root
+    * @throws IllegalArgumentException if the rootURI is null
+    * @see #setAsyncExecutor(Executor)
+    */
+   public static Future<VirtualFile> getRootAsync(final URI rootURI)
+   {
+      if (rootURI == null)
+         throw new IllegalArgumentException("Null rootURI");
+
+      return AsyncExecution.submit(new Callable<VirtualFile>()
+      {
+         public VirtualFile call() throws IOException
+         {
+            return getRoot(rootURI);
+         }
+      });
+   }
+
    /**
     * Get the virtual file system for a root url
     * 
@@ -165,6 +196,83 @@ public class VFS
       return vfs.findChild(name);
    }
 
+   /**
+    * Get the root virtual file in the background, opening
+    * an archive root can take a while for large archives.
+    *
+    * @param rootURL the root url
+    * @return the future root
+    * @throws IllegalArgumentException if the rootURL is null
+    * @see #setAsyncExecutor(Executor)
+    */
+   public static Future<VirtualFile> getRootAsync(final URL rootURL)
+   {
+      if (rootURL == null)
+         throw new IllegalArgumentException("Null rootURL");
+
+      return AsyncExecution.submit(new Callable<VirtualFile>()
+      {
+         public VirtualFile call() throws IOException
+         {
+            return getRoot(rootURL);
+         }
+      });
+   }
+
+   /**
+    * Index a tree in the background, for example a deployment while the
+    * rest of the container starts, so its first user does not pay for it.
+    *
+    * @param root the root
+    * @param policy how far to index and what to read ahead
+    * @return the progress, holding the number of files indexed when done
+    * @throws IllegalArgumentException if the root or policy is null
+    * @see #setAsyncExecutor(Executor)
+    */
+   public static WarmupFuture preload(VirtualFile root, WarmupPolicy policy)
+   {
+      return Warmup.start(root, policy);
+   }
+
+   /**
+    * Read the files of a recorded access profile in the background, in
+    * the order they were first read, so a restart finds them indexed and cached.
+    *
+    * @param profile the profile
+    * @return the progress, holding the number of files read when done
+    * @throws IllegalArgumentException if the profile is null
+    * @see AccessProfile#startRecording()
+    */
+   public static WarmupFuture preload(AccessProfile profile)
+   {
+      if (profile == null)
+         throw new IllegalArgumentException("Null profile");
+      return profile.replay();
+   }
+
+   /**
+    * Open a session keeping the archives it reads open until it is closed.
+    *
+    * @return the session, to be closed by the caller
+    */
+   public static VFSSession openSession()
+   {
+      return new VFSSession();
+   }
+
+   /**
+    * Set the executor running the asynchronous operations.<p>
+    *
+    * By default they run on a shared pool of daemon threads sized by
+    * {@link VFSUtils#ASYNC_THREADS_KEY}, or on the caller when that is 0.
+    *
+    * @param executor the executor, null to go back to the default
+    */
+   public static void setAsyncExecutor(Executor executor)
+   {
+      AsyncExecution.setExecutor(executor);
+   }
+
    /**
     * Create a new VFS.
     * 
@@ -212,6 +320,18 @@ public class VFS
       return result.getVirtualFile();
    }
    
+   /**
+   * Get several children of the root at once
+   *
+   * @param paths the child paths
+   * @return the children found by path, missing children are left out
+   * @throws IOException if a real problem occurs
+   */
+   public Map<String, VirtualFile> getChildrenByPath(Collection<String> paths) throws IOException
+   {
+      return getRoot().getChildrenByPath(paths);
+   }
+
    /**
    * Get a child
    *
@@ -294,6 +414,32 @@ public class VFS
       return getRoot().getChildrenRecursively(filter);
    }
    
+   /**
+    * Iterate the children of the root lazily
+    * 
+    * @param filter to filter the children, matches everything if null
+    * @return the children
+    * @throws IOException for any problem accessing the virtual file system
+    */
+   public Iterable<VirtualFile> iterateChildren(VirtualFileFilter filter) throws IOException
+   {
+      return getRoot().iterateChildren(filter);
+   }
+
+   /**
+    * Iterate all the children recursively and lazily<p>
+    * 
+    * This always uses {@link VisitorAttributes#RECURSE}
+    * 
+    * @param filter to filter the children, matches everything if null
+    * @return the children
+    * @throws IOException for any problem accessing the virtual file system
+    */
+   public Iterable<VirtualFile> iterateChildrenRecursively(VirtualFileFilter filter) throws IOException
+   {
+      return getRoot().iterateChildrenRecursively(filter);
+   }
+   
    /**
     * Visit the virtual file system from the root
     * 
@@ -307,7 +453,10 @@ public class VFS
       if (handler.isLeaf() == false)
       {
          WrappingVirtualFileHandlerVisitor wrapper = new WrappingVirtualFileHandlerVisitor(visitor);
-         context.visit(handler, wrapper);
+         if (visitor instanceof ParallelVirtualFileVisitor)
+            ParallelVisit.visit(handler, wrapper);
+         else
+            context.visit(handler, wrapper);
       }
    }
 
@@ -326,6 +475,11 @@ public class VFS
 
       VirtualFileHandler handler = file.getHandler();
       WrappingVirtualFileHandlerVisitor wrapper = new WrappingVirtualFileHandlerVisitor(visitor);
+      if (visitor instanceof ParallelVirtualFileVisitor)
+      {
+         ParallelVisit.visit(handler, wrapper);
+         return;
+      }
       VFSContext handlerContext = handler.getVFSContext();
       handlerContext.visit(handler, wrapper);
    }
@@ -0,0 +1,61 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual;
+
+import java.io.Closeable;
+
+import org.jboss.virtual.plugins.context.zip.ZipSession;
+
+/**
+ * A bounded phase, such as a deployment scan, during which archives stay open.<p>
+ *
+ * Every archive read while the session is open stays open until the session
+ * is closed, instead of being closed by the reaper in between passes, and
+ * those archives are not checked for modification. Archives cannot be deleted
+ * while a session holds them. Always close the session in a finally block,
+ * a session that is garbage collected without being closed is logged.
+ *
+ * @see VFS#openSession()
+ * @version $Revision: 1.1 $
+ */
+public final class VFSSession implements Closeable
+{
+   /** The zip session */
+   private final ZipSession zipSession;
+
+   /**
+    * Create a new VFSSession.
+    */
+   VFSSession()
+   {
+      zipSession = ZipSession.open();
+   }
+
+   /**
+    * Release all the archives held by this session,
+    * closing it more than once does nothing.
+    */
+   public void close()
+   {
+      zipSession.close();
+   }
+}
@@ -21,6 +21,7 @@
 */
 package org.jboss.virtual;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -30,6 +31,8 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.net.MalformedURLException;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -50,6 +53,7 @@ import org.jboss.virtual.plugins.copy.UnpackCopyMechanism;
 import org.jboss.virtual.spi.LinkInfo;
 import org.jboss.virtual.spi.VFSContext;
 import org.jboss.virtual.spi.VirtualFileHandler;
+import org.jboss.virtual.spi.VirtualFileHandlerFilter;
 
 /**
  * VFS Utilities
@@ -105,6 +109,89 @@ public class VFSUtils
     */
    public static final String OPTIMIZE_FOR_MEMORY_KEY = "jboss.vfs.optimizeForMemory";
 
+   /**
+    * Keys used to tune change notification - how often (ms) monitored subtrees are checked,
+    * and how long (ms) a subtree has to be quiet before collected changes are delivered
+    */
+   public static final String CHANGE_CHECK_PERIOD_KEY = "jboss.vfs.changeCheckPeriod";
+   public static final String CHANGE_QUIET_PERIOD_KEY = "jboss.vfs.changeQuietPeriod";
+
+   /**
+    * Key used to set the number of threads checking monitored subtrees for changes, at least one
+    */
+   public static final String CHANGE_CHECK_THREADS_KEY = "jboss.vfs.changeCheckThreads";
+
+   /**
+    * Key used to set the number of threads creating handlers for large directory listings, 0 turns it off
+    */
+   public static final String LISTING_THREADS_KEY = "jboss.vfs.listingThreads";
+
+   /**
+    * Key used to set the number of threads walking subtrees for parallel visitors, 0 turns it off
+    */
+   public static final String VISIT_THREADS_KEY = "jboss.vfs.visitThreads";
+
+   /**
+    * Key used to set the number of threads running asynchronous operations, 0 runs them on the caller
+    */
+   public static final String ASYNC_THREADS_KEY = "jboss.vfs.asyncThreads";
+
+   /**
+    * Key used to set the size in bytes from which the buffer of a plain file is memory mapped, 0 turns it off
+    */
+   public static final String MAPPING_THRESHOLD_KEY = "jboss.vfs.mappingThreshold";
+
+   /**
+    * Key used to set the time in ms the last modified time and size read from a url are reused
+    */
+   public static final String URL_METADATA_CACHE_TIME_KEY = "jboss.vfs.urlMetadataCacheTime";
+
+   /**
+    * Key used to set the number of contexts kept for reuse by the context factories, 0 turns it off
+    */
+   public static final String CONTEXT_CACHE_SIZE_KEY = "jboss.vfs.contextCacheSize";
+
+   /**
+    * Key used to set the time in ms an unused context is kept for reuse
+    */
+   public static final String CONTEXT_CACHE_IDLE_TIME_KEY = "jboss.vfs.contextCacheIdleTime";
+
+   /**
+    * Key used to set the time in ms a reused context's root is trusted to exist before it is checked again
+    */
+   public static final String CONTEXT_CACHE_CHECK_PERIOD_KEY = "jboss.vfs.contextCacheCheckPeriod";
+
+   /**
+    * Key used to set the number of vfs urls whose VFS is cached, 0 turns it off
+    */
+   public static final String URL_CACHE_SIZE_KEY = "jboss.vfs.urlCacheSize";
+
+   /**
+    * Key used to set the time in ms an unused vfs url stays cached
+    */
+   public static final String URL_CACHE_IDLE_TIME_KEY = "jboss.vfs.urlCacheIdleTime";
+
+   /**
+    * Check a handler against a filter, only creating a virtual file
+    * when the filter cannot decide from the handler alone
+    *
+    * @param filter the filter
+    * @param handler the handler
+    * @return true when the filter accepts the handler
+    * @throws IllegalArgumentException for a null filter or handler
+    */
+   public static boolean accepts(VirtualFileFilter filter, VirtualFileHandler handler)
+   {
+      if (filter == null)
+         throw new IllegalArgumentException("Null filter");
+      if (handler == null)
+         throw new IllegalArgumentException("Null handler");
+
+      if (filter instanceof VirtualFileHandlerFilter)
+         return ((VirtualFileHandlerFilter) filter).accepts(handler);
+      return filter.accepts(handler.getVirtualFile());
+   }
+
    /**
     * Get the paths string for a collection of virtual files
     *
@@ -543,6 +630,9 @@ public class VFSUtils
    /**
     * Enable option.
     *
+    * Options belong to the file's VFS, once changed that VFS is
+    * no longer handed out to callers asking for the old options.
+    *
     * @param file the file
     * @param optionName option name
     */
@@ -705,6 +795,109 @@ public class VFSUtils
       return handler.isNested();
    }
 
+   /**
+    * Read a numeric system property with the privileges of the vfs
+    *
+    * @param key the property key
+    * @param defaultValue the value when the property is not set or not a number
+    * @return the value
+    */
+   public static long getLongProperty(String key, long defaultValue)
+   {
+      return AccessController.doPrivileged(new GetLongProperty(key, defaultValue));
+   }
+
+   /**
+    * Read a numeric system property with the privileges of the vfs
+    *
+    * @param key the property key
+    * @param defaultValue the value when the property is not set or not a number
+    * @return the value
+    */
+   public static int getIntProperty(String key, int defaultValue)
+   {
+      long value = getLongProperty(key, defaultValue);
+      if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+      {
+         log.warn("Invalid " + key + ": " + value + ", using " + defaultValue);
+         return defaultValue;
+      }
+      return (int) value;
+   }
+
+   /**
+    * Read a stream to the end and close it, allocating the result
+    * only once when the size is known and right.
+    *
+    * @param is input stream
+    * @param size the expected size, negative if unknown
+    * @return the bytes read
+    * @throws IOException for any error
+    */
+   public static byte[] readBytesAndClose(InputStream is, long size) throws IOException
+   {
+      if (is == null)
+         throw new IllegalArgumentException("input stream is null");
+
+      try
+      {
+         if (size < 0 || size >= Integer.MAX_VALUE)
+            return readRemaining(is, new byte[0], 0);
+
+         byte[] bytes = new byte[(int) size];
+         int offset = 0;
+         while (offset < bytes.length)
+         {
+            int rc = is.read(bytes, offset, bytes.length - offset);
+            if (rc == -1)
+            {
+               // shorter than announced
+               byte[] result = new byte[offset];
+               System.arraycopy(bytes, 0, result, 0, offset);
+               return result;
+            }
+            offset += rc;
+         }
+
+         int next = is.read();
+         if (next == -1)
+            return bytes;
+
+         // longer than announced
+         byte[] grown = new byte[bytes.length + 1];
+         System.arraycopy(bytes, 0, grown, 0, bytes.length);
+         grown[bytes.length] = (byte) next;
+         return readRemaining(is, grown, grown.length);
+      }
+      finally
+      {
+         try
+         {
+            is.close();
+         }
+         catch (IOException ignored)
+         {
+         }
+      }
+   }
+
+   /**
+    * Read the rest of a stream behind bytes already read
+    *
+    * @param is input stream
+    * @param bytes the bytes read so far
+    * @param length the number of bytes read so far
+    * @return all the bytes
+    * @throws IOException for any error
+    */
+   private static byte[] readRemaining(InputStream is, byte[] bytes, int length) throws IOException
+   {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(Math.max(length + 8192, 8192));
+      baos.write(bytes, 0, length);
+      copyStream(is, baos);
+      return baos.toByteArray();
+   }
+
    /**
     * Copy input stream to output stream and close them both
     *
@@ -893,4 +1086,38 @@ public class VFSUtils
          return new URI(string);
       }
    };
+
+   /**
+    * PriviligedAction used to read a numeric system property
+    */
+   private static class GetLongProperty implements PrivilegedAction<Long>
+   {
+      private final String key;
+      private final long defaultValue;
+
+      private GetLongProperty(String key, long defaultValue)
+      {
+         if (key == null)
+            throw new IllegalArgumentException("Null key");
+         this.key = key;
+         this.defaultValue = defaultValue;
+      }
+
+      public Long run()
+      {
+         String value = System.getProperty(key);
+         if (value == null)
+            return defaultValue;
+
+         try
+         {
+            return Long.parseLong(value.trim());
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Invalid " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+         }
+      }
+   }
 }
@@ -23,18 +23,35 @@ package org.jboss.virtual ;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.jboss.virtual.plugins.context.AbstractVirtualFileHandler;
+import org.jboss.virtual.plugins.vfs.helpers.AsyncExecution;
 import org.jboss.virtual.plugins.vfs.helpers.FilterVirtualFileVisitor;
 import org.jboss.virtual.plugins.vfs.helpers.MatchAllVirtualFileFilter;
+import org.jboss.virtual.plugins.vfs.helpers.VirtualFileIterator;
 import org.jboss.virtual.spi.VFSContext;
 import org.jboss.virtual.spi.VirtualFileHandler;
 import org.jboss.util.collection.WeakSet;
@@ -204,6 +221,20 @@ public class VirtualFile implements Serializable
       return getHandler().isHidden();
    }
 
+   /**
+    * Get the size, last modified time, leaf, hidden and exists
+    * flags in one go, which touches the underlying file system
+    * less often than asking for each of them.
+    *
+    * @return the attributes
+    * @throws IOException for any problem accessing the virtual file system
+    * @throws IllegalStateException if the file is closed
+    */
+   public VirtualFileAttributes getAttributes() throws IOException
+   {
+      return getHandler().getAttributes();
+   }
+
    /**
     * Access the file contents.
     *
@@ -214,11 +245,200 @@ public class VirtualFile implements Serializable
    public InputStream openStream() throws IOException
    {
       InputStream result = getHandler().openStream();
+      AccessProfile.recordAccess(this);
       checkStreams();
       streams.add(result);
       return result;
    }
 
+   /**
+    * Open the file contents in the background, the stream
+    * is closed by {@link #closeStreams()} like any other.
+    *
+    * @return the future stream
+    * @throws IllegalStateException if the file is closed
+    * @see VFS#setAsyncExecutor(java.util.concurrent.Executor)
+    */
+   public Future<InputStream> openStreamAsync()
+   {
+      getHandler();
+      return AsyncExecution.submit(new Callable<InputStream>()
+      {
+         public InputStream call() throws IOException
+         {
+            return openStream();
+         }
+      });
+   }
+
+   /**
+    * Read the whole file contents, allocating the result only
+    * once where the size of the file is known up front.
+    *
+    * @return the contents
+    * @throws IOException for any error accessing the file system
+    * @throws IllegalStateException if the file is closed
+    */
+   public byte[] getBytes() throws IOException
+   {
+      byte[] bytes = getHandler().getBytes();
+      AccessProfile.recordAccess(this);
+      return bytes;
+   }
+
+   /**
+    * Read the whole file contents in the background.
+    *
+    * @return the future contents
+    * @throws IllegalStateException if the file is closed
+    * @see VFS#setAsyncExecutor(java.util.concurrent.Executor)
+    */
+   public Future<byte[]> getBytesAsync()
+   {
+      getHandler();
+      return AsyncExecution.submit(new Callable<byte[]>()
+      {
+         public byte[] call() throws IOException
+         {
+            return getBytes();
+         }
+      });
+   }
+
+   /**
+    * Get the whole file contents as a read only buffer,
+    * large plain files are memory mapped instead of read.
+    *
+    * @return the contents
+    * @throws IOException for any error accessing the file system
+    * @throws IllegalStateException if the file is closed
+    */
+   public ByteBuffer getBuffer() throws IOException
+   {
+      ByteBuffer buffer = getHandler().getBuffer();
+      AccessProfile.recordAccess(this);
+      return buffer;
+   }
+
+   /**
+    * Open a channel reading the file contents from any position.<p>
+    *
+    * Unlike streams, channels are not closed by {@link #closeStreams()},
+    * the caller has to close them.
+    *
+    * @return the channel
+    * @throws IOException for any error accessing the file system
+    * @throws IllegalStateException if the file is closed
+    */
+   public VirtualFileChannel openChannel() throws IOException
+   {
+      VirtualFileChannel channel = getHandler().openChannel();
+      AccessProfile.recordAccess(this);
+      return channel;
+   }
+
+   /**
+    * Write the file contents to a channel, letting the operating
+    * system do the copying for plain files. The target is not closed,
+    * a non-blocking target is waited on until it has taken everything.
+    *
+    * @param target the target
+    * @return the number of bytes written
+    * @throws IOException for any error accessing the file system or writing the target
+    * @throws IllegalArgumentException for a null target
+    * @throws IllegalStateException if the file is closed
+    */
+   public long transferTo(WritableByteChannel target) throws IOException
+   {
+      if (target == null)
+         throw new IllegalArgumentException("Null target");
+
+      VirtualFileChannel channel = openChannel();
+      try
+      {
+         // a negative size is unknown, the transfer then runs to the end of the contents
+         long size = channel.size();
+         long position = 0;
+         boolean waited = false;
+         while (size < 0 || position < size)
+         {
+            long count = size < 0 ? Long.MAX_VALUE - position : size - position;
+            long transferred = channel.transferTo(position, count, target);
+            if (transferred > 0)
+            {
+               position += transferred;
+               waited = false;
+            }
+            else if (waited == false && isNonBlocking(target))
+            {
+               awaitWritable((SelectableChannel) target);
+               waited = true;
+            }
+            else if (size < 0)
+            {
+               break;
+            }
+            else
+            {
+               throw new IOException("Transfer of " + this + " ended at " + position + " of " + size + " bytes");
+            }
+         }
+         return position;
+      }
+      finally
+      {
+         channel.close();
+      }
+   }
+
+   /**
+    * Whether a target can refuse bytes without being full
+    *
+    * @param target the target
+    * @return true for a non-blocking selectable channel
+    */
+   private static boolean isNonBlocking(WritableByteChannel target)
+   {
+      return target instanceof SelectableChannel && ((SelectableChannel) target).isBlocking() == false;
+   }
+
+   /**
+    * Wait until a non-blocking target can take more bytes
+    *
+    * @param target the target
+    * @throws IOException for any error
+    */
+   private static void awaitWritable(SelectableChannel target) throws IOException
+   {
+      Selector selector = Selector.open();
+      try
+      {
+         SelectionKey key = target.register(selector, SelectionKey.OP_WRITE);
+         selector.select();
+         key.cancel();
+      }
+      finally
+      {
+         selector.close();
+      }
+   }
+
+   /**
+    * Write the file contents to a stream. The stream is not closed.
+    *
+    * @param target the target
+    * @return the number of bytes written
+    * @throws IOException for any error accessing the file system or writing the target
+    * @throws IllegalArgumentException for a null target
+    * @throws IllegalStateException if the file is closed
+    */
+   public long transferTo(OutputStream target) throws IOException
+   {
+      if (target == null)
+         throw new IllegalArgumentException("Null target");
+      return transferTo(Channels.newChannel(target));
+   }
+
    /**
     * Check if streams set exist.
     */
@@ -357,6 +577,27 @@ public class VirtualFile implements Serializable
       return visitor.getMatched();
    }
 
+   /**
+    * Get the children in the background, for a nested archive
+    * this includes opening it the first time.
+    *
+    * @param filter to filter the children, may be null
+    * @return the future children
+    * @throws IllegalStateException if the file is closed
+    * @see VFS#setAsyncExecutor(java.util.concurrent.Executor)
+    */
+   public Future<List<VirtualFile>> getChildrenAsync(final VirtualFileFilter filter)
+   {
+      getHandler();
+      return AsyncExecution.submit(new Callable<List<VirtualFile>>()
+      {
+         public List<VirtualFile> call() throws IOException
+         {
+            return getChildren(filter);
+         }
+      });
+   }
+
    /**
     * Get all the children recursively<p>
     *
@@ -394,7 +635,58 @@ public class VirtualFile implements Serializable
    }
 
    /**
-    * Visit the virtual file system
+    * Iterate the children lazily<p>
+    *
+    * Nothing is listed until the iteration starts, so stopping early avoids
+    * creating files for the remaining children.
+    *
+    * @param filter to filter the children, matches everything if null
+    * @return the children
+    * @throws IllegalStateException if the file is closed
+    */
+   public Iterable<VirtualFile> iterateChildren(VirtualFileFilter filter)
+   {
+      return iterate(filter, null);
+   }
+
+   /**
+    * Iterate all the children recursively and lazily<p>
+    *
+    * This always uses {@link VisitorAttributes#RECURSE}. A directory is only
+    * listed when the iteration reaches it.
+    *
+    * @param filter to filter the children, matches everything if null
+    * @return the children
+    * @throws IllegalStateException if the file is closed
+    */
+   public Iterable<VirtualFile> iterateChildrenRecursively(VirtualFileFilter filter)
+   {
+      return iterate(filter, VisitorAttributes.RECURSE);
+   }
+
+   /**
+    * Create a lazy iteration over this file
+    *
+    * @param filter the filter
+    * @param attributes the attributes
+    * @return the iterable
+    */
+   private Iterable<VirtualFile> iterate(final VirtualFileFilter filter, final VisitorAttributes attributes)
+   {
+      final VirtualFileHandler handler = getHandler();
+      return new Iterable<VirtualFile>()
+      {
+         public Iterator<VirtualFile> iterator()
+         {
+            return new VirtualFileIterator(handler, filter, attributes);
+         }
+      };
+   }
+
+   /**
+    * Visit the virtual file system<p>
+    *
+    * A {@link ParallelVirtualFileVisitor} is called from several threads.
     *
     * @param visitor the visitor
     * @throws IOException for any problem accessing the virtual file system
@@ -407,6 +699,37 @@ public class VirtualFile implements Serializable
          getVFS().visit(this, visitor);
    }
 
+   /**
+    * Listen for files created, modified or deleted in this file's subtree.
+    *
+    * Changes are delivered in batches once the subtree has been quiet for a while.
+    * The listener is dropped when this file is closed, or once its file system
+    * is no longer referenced.
+    *
+    * @param listener the listener
+    * @throws IOException for any problem accessing the virtual file system
+    * @throws IllegalArgumentException if the listener is null
+    * @throws IllegalStateException if the file is closed
+    */
+   public void addChangeListener(VirtualFileChangeListener listener) throws IOException
+   {
+      VirtualFileHandler handler = getHandler();
+      handler.getVFSContext().addChangeListener(handler, listener);
+   }
+
+   /**
+    * Stop delivering changes to a listener.
+    *
+    * @param listener the listener
+    * @return false when not registered
+    * @throws IllegalArgumentException if the listener is null
+    * @throws IllegalStateException if the file is closed
+    */
+   public boolean removeChangeListener(VirtualFileChangeListener listener)
+   {
+      return getHandler().getVFSContext().removeChangeListener(listener);
+   }
+
    /**
     * Find a child
     *
@@ -452,6 +775,99 @@ public class VirtualFile implements Serializable
       return child != null ? child.getVirtualFile() : null;
    }
 
+   /**
+    * Get a child in the background
+    *
+    * @param path the path
+    * @return the future child, holding <code>null</code> if not found
+    * @throws IllegalArgumentException if the path is null
+    * @throws IllegalStateException if the file is closed
+    * @see VFS#setAsyncExecutor(java.util.concurrent.Executor)
+    */
+   public Future<VirtualFile> getChildAsync(final String path)
+   {
+      if (path == null)
+         throw new IllegalArgumentException("Null path");
+
+      getHandler();
+      return AsyncExecution.submit(new Callable<VirtualFile>()
+      {
+         public VirtualFile call() throws IOException
+         {
+            return getChild(path);
+         }
+      });
+   }
+
+   /**
+    * Get several children at once<p>
+    *
+    * This is cheaper than getting each child on its own, leading directories
+    * shared by the paths are only resolved once and an archive is only checked
+    * for modification once.
+    *
+    * @param paths the paths
+    * @return the children found by path in the order of the paths, missing children are left out
+    * @throws IOException for any problem accessing the VFS
+    * @throws IllegalArgumentException if the paths or any path is null
+    * @throws IllegalStateException if the file is closed or it is a leaf node
+    */
+   public Map<String, VirtualFile> getChildrenByPath(Collection<String> paths) throws IOException
+   {
+      if (paths == null)
+         throw new IllegalArgumentException("Null paths");
+
+      List<VirtualPath> tokenized = new ArrayList<VirtualPath>(paths.size());
+      for (String path : paths)
+      {
+         if (path == null)
+            throw new IllegalArgumentException("Null path");
+         tokenized.add(new VirtualPath(path));
+      }
+
+      VirtualFileHandler handler = getHandler();
+      Map<String, VirtualFile> result = new LinkedHashMap<String, VirtualFile>();
+      if (handler instanceof AbstractVirtualFileHandler)
+      {
+         Map<VirtualPath, VirtualFileHandler> children = ((AbstractVirtualFileHandler) handler).getChildren(tokenized);
+         for (Map.Entry<VirtualPath, VirtualFileHandler> entry : children.entrySet())
+            result.put(entry.getKey().getPath(), entry.getValue().getVirtualFile());
+      }
+      else
+      {
+         for (String path : paths)
+         {
+            VirtualFileHandler child = handler.getChild(VFSUtils.fixName(path));
+            if (child != null)
+               result.put(path, child.getVirtualFile());
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Get a child for an already tokenized path
+    *
+    * @param path the path
+    * @return the child or <code>null</code> if not found
+    * @throws IOException for any problem accessing the VFS
+    * @throws IllegalArgumentException if the path is null
+    * @throws IllegalStateException if the file is closed or it is a leaf node
+    */
+   public VirtualFile getChild(VirtualPath path) throws IOException
+   {
+      if (path == null)
+         throw new IllegalArgumentException("Null path");
+
+      VirtualFileHandler handler = getHandler();
+      VirtualFileHandler child;
+      if (handler instanceof AbstractVirtualFileHandler)
+         child = ((AbstractVirtualFileHandler) handler).getChild(path);
+      else
+         child = handler.getChild(path.getPath());
+      return child != null ? child.getVirtualFile() : null;
+   }
+
    @Override
    public String toString()
    {
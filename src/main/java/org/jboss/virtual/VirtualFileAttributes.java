@@ -0,0 +1,151 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual;
+
+import java.io.Serializable;
+
+/**
+ * A snapshot of the basic attributes of a virtual file,
+ * read with as few accesses to the underlying file system as possible.
+ *
+ * @version $Revision: 1.1 $
+ */
+public final class VirtualFileAttributes implements Serializable
+{
+   private static final long serialVersionUID = 1L;
+
+   /** The attributes of a file that does not exist */
+   public static final VirtualFileAttributes MISSING = new VirtualFileAttributes(false, false, false, 0, 0);
+
+   /** Whether the file exists */
+   private final boolean exists;
+
+   /** Whether the file is a leaf */
+   private final boolean leaf;
+
+   /** Whether the file is hidden */
+   private final boolean hidden;
+
+   /** The size */
+   private final long size;
+
+   /** The last modified time */
+   private final long lastModified;
+
+   /**
+    * Create a new VirtualFileAttributes.
+    *
+    * @param exists whether the file exists
+    * @param leaf whether the file is a leaf
+    * @param hidden whether the file is hidden
+    * @param size the size
+    * @param lastModified the last modified time
+    */
+   public VirtualFileAttributes(boolean exists, boolean leaf, boolean hidden, long size, long lastModified)
+   {
+      this.exists = exists;
+      this.leaf = leaf;
+      this.hidden = hidden;
+      this.size = size;
+      this.lastModified = lastModified;
+   }
+
+   /**
+    * Whether the file existed
+    *
+    * @return true if the file existed
+    */
+   public boolean exists()
+   {
+      return exists;
+   }
+
+   /**
+    * Whether the file was a leaf
+    *
+    * @return true if a simple file
+    */
+   public boolean isLeaf()
+   {
+      return leaf;
+   }
+
+   /**
+    * Whether the file was hidden
+    *
+    * @return true when hidden
+    */
+   public boolean isHidden()
+   {
+      return hidden;
+   }
+
+   /**
+    * Get the size
+    *
+    * @return the size
+    */
+   public long getSize()
+   {
+      return size;
+   }
+
+   /**
+    * Get the last modified time
+    *
+    * @return the last modified time
+    */
+   public long getLastModified()
+   {
+      return lastModified;
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (obj == this)
+         return true;
+      if (obj instanceof VirtualFileAttributes == false)
+         return false;
+      VirtualFileAttributes other = (VirtualFileAttributes) obj;
+      return exists == other.exists && leaf == other.leaf && hidden == other.hidden
+         && size == other.size && lastModified == other.lastModified;
+   }
+
+   @Override
+   public int hashCode()
+   {
+      return (int) (lastModified ^ (lastModified >>> 32)) ^ (int) size;
+   }
+
+   @Override
+   public String toString()
+   {
+      StringBuilder buffer = new StringBuilder();
+      buffer.append("exists=").append(exists);
+      buffer.append(" leaf=").append(leaf);
+      buffer.append(" hidden=").append(hidden);
+      buffer.append(" size=").append(size);
+      buffer.append(" lastModified=").append(lastModified);
+      return buffer.toString();
+   }
+}
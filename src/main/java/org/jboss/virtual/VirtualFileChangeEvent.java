@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual;
+
+/**
+ * A change to a virtual file detected by the change monitor.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class VirtualFileChangeEvent
+{
+   /** The kind of change */
+   public static enum Type
+   {
+      CREATED,
+      MODIFIED,
+      DELETED
+   }
+
+   /** The type */
+   private final Type type;
+
+   /** The VFS path name of the changed file */
+   private final String pathName;
+
+   /** The last modified time seen for the file, 0 when deleted */
+   private final long lastModified;
+
+   /**
+    * Create a new VirtualFileChangeEvent.
+    *
+    * @param type the type of change
+    * @param pathName the VFS relative path name
+    * @param lastModified the last modified time, 0 when deleted
+    * @throws IllegalArgumentException for a null type or path name
+    */
+   public VirtualFileChangeEvent(Type type, String pathName, long lastModified)
+   {
+      if (type == null)
+         throw new IllegalArgumentException("Null type");
+      if (pathName == null)
+         throw new IllegalArgumentException("Null path name");
+      this.type = type;
+      this.pathName = pathName;
+      this.lastModified = lastModified;
+   }
+
+   /**
+    * Get the type of change.
+    *
+    * @return the type
+    */
+   public Type getType()
+   {
+      return type;
+   }
+
+   /**
+    * Get the VFS relative path name (org/jboss/X.java) of the changed file.
+    *
+    * @return the path name
+    */
+   public String getPathName()
+   {
+      return pathName;
+   }
+
+   /**
+    * Get the last modified time seen for the file.
+    *
+    * @return the last modified time, 0 when deleted
+    */
+   public long getLastModified()
+   {
+      return lastModified;
+   }
+
+   @Override
+   public String toString()
+   {
+      return type + " " + pathName;
+   }
+}
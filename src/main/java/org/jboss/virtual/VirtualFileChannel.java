@@ -0,0 +1,74 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A channel reading a virtual file from any position.
+ *
+ * @version $Revision: 1.1 $
+ */
+public interface VirtualFileChannel extends ReadableByteChannel
+{
+   /**
+    * Get the position the next read starts from
+    *
+    * @return the position
+    * @throws IOException for any error
+    */
+   long position() throws IOException;
+
+   /**
+    * Set the position the next read starts from,
+    * a position past the end makes the next read return -1
+    *
+    * @param newPosition the new position
+    * @return this channel
+    * @throws IOException for any error
+    * @throws IllegalArgumentException for a negative position
+    */
+   VirtualFileChannel position(long newPosition) throws IOException;
+
+   /**
+    * Get the size of the file
+    *
+    * @return the size
+    * @throws IOException for any error
+    */
+   long size() throws IOException;
+
+   /**
+    * Transfer bytes to a channel without changing the position of this channel,
+    * going through the operating system where the file allows it.
+    *
+    * @param position the position of the first byte
+    * @param count the maximum number of bytes
+    * @param target the target
+    * @return the number of bytes transferred, 0 past the end
+    * @throws IOException for any error
+    * @throws IllegalArgumentException for a negative position or count or a null target
+    */
+   long transferTo(long position, long count, WritableByteChannel target) throws IOException;
+}
@@ -0,0 +1,220 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.jboss.virtual.plugins.vfs.helpers.PathTokenizer;
+
+/**
+ * A relative virtual path, tokenized once.
+ *
+ * Keep and reuse instances for paths that are looked up over and over,
+ * e.g. resource names, and walking them allocates nothing.
+ *
+ * @version $Revision: 1.1 $
+ */
+public final class VirtualPath implements Serializable
+{
+   private static final long serialVersionUID = 1L;
+
+   /** The empty path */
+   public static final VirtualPath EMPTY = new VirtualPath("");
+
+   /** The path */
+   private final String path;
+
+   /** The tokens, . and .. are the PathTokenizer constants */
+   private final String[] tokens;
+
+   /** Whether there are . or .. tokens */
+   private final boolean special;
+
+   /** The tokens joined by '/', created on first use */
+   private transient String simplePath;
+
+   /**
+    * Create a new VirtualPath.
+    *
+    * @param path the path, a leading or trailing '/' is ignored
+    * @throws IllegalArgumentException for a null path or an illegal token
+    */
+   public VirtualPath(String path)
+   {
+      List<String> list = PathTokenizer.getTokens(path);
+      this.path = path;
+      this.tokens = list.toArray(new String[list.size()]);
+
+      boolean special = false;
+      for (String token : tokens)
+      {
+         if (PathTokenizer.isCurrentToken(token) || PathTokenizer.isReverseToken(token))
+         {
+            special = true;
+            break;
+         }
+      }
+      this.special = special;
+   }
+
+   /**
+    * Get the path as given
+    *
+    * @return the path
+    */
+   public String getPath()
+   {
+      return path;
+   }
+
+   /**
+    * Get the tokens joined by '/', without leading, trailing or repeated slashes
+    *
+    * @return the simple path
+    */
+   public String getSimplePath()
+   {
+      if (simplePath == null)
+         simplePath = tokens.length == 0 ? "" : getRemainingPath(0);
+      return simplePath;
+   }
+
+   /**
+    * Does the path contain . or .. tokens
+    *
+    * @return true if there are special tokens
+    */
+   public boolean hasSpecialTokens()
+   {
+      return special;
+   }
+
+   /**
+    * Get the number of tokens
+    *
+    * @return the number of tokens
+    */
+   public int size()
+   {
+      return tokens.length;
+   }
+
+   /**
+    * Is this the empty path
+    *
+    * @return true if there are no tokens
+    */
+   public boolean isEmpty()
+   {
+      return tokens.length == 0;
+   }
+
+   /**
+    * Get a token
+    *
+    * @param i the index
+    * @return the token
+    * @throws IndexOutOfBoundsException if i is out of range
+    */
+   public String getToken(int i)
+   {
+      return tokens[i];
+   }
+
+   /**
+    * Is the token a . token
+    *
+    * @param i the index
+    * @return true for a . token
+    */
+   public boolean isCurrentToken(int i)
+   {
+      return PathTokenizer.isCurrentToken(tokens[i]);
+   }
+
+   /**
+    * Is the token a .. token
+    *
+    * @param i the index
+    * @return true for a .. token
+    */
+   public boolean isReverseToken(int i)
+   {
+      return PathTokenizer.isReverseToken(tokens[i]);
+   }
+
+   /**
+    * Get the path from a token on
+    *
+    * @param i the index of the first token
+    * @return the remaining path
+    * @throws IllegalArgumentException if i is out of range
+    */
+   public String getRemainingPath(int i)
+   {
+      if (i < 0 || i >= tokens.length)
+         throw new IllegalArgumentException("i is not in the range of tokens: 0-" + (tokens.length - 1));
+
+      if (i == tokens.length - 1)
+         return tokens[i];
+
+      StringBuilder buffer = new StringBuilder();
+      for (; i < tokens.length - 1; ++i)
+         buffer.append(tokens[i]).append('/');
+      buffer.append(tokens[tokens.length - 1]);
+      return buffer.toString();
+   }
+
+   /**
+    * Tokenize again, the . and .. tokens are compared by identity.
+    *
+    * @return a freshly tokenized path
+    */
+   private Object readResolve()
+   {
+      return new VirtualPath(path);
+   }
+
+   @Override
+   public String toString()
+   {
+      return path;
+   }
+
+   @Override
+   public int hashCode()
+   {
+      return path.hashCode();
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (obj == this)
+         return true;
+      if (obj == null || obj instanceof VirtualPath == false)
+         return false;
+      VirtualPath other = (VirtualPath) obj;
+      return path.equals(other.path);
+   }
+}
@@ -21,6 +21,9 @@
 */
 package org.jboss.virtual;
 
+import org.jboss.virtual.spi.VirtualFileHandler;
+import org.jboss.virtual.spi.VirtualFileHandlerFilter;
+
 /**
  * Attributes used when visiting a virtual file system
  * 
@@ -189,12 +192,17 @@ public class VisitorAttributes
       this.includeHidden = includeHidden;
    }
 
-   private static class AcceptAnyFilter implements VirtualFileFilter
+   private static class AcceptAnyFilter implements VirtualFileFilter, VirtualFileHandlerFilter
    {
       public boolean accepts(VirtualFile file)
       {
          return true;
       }      
+
+      public boolean accepts(VirtualFileHandler handler)
+      {
+         return true;
+      }
    }
    /**
     * Immutable version of the attribues
@@ -0,0 +1,110 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual;
+
+/**
+ * Controls how far {@link VFS#preload(VirtualFile, WarmupPolicy)} indexes a tree
+ * and which file contents it reads ahead.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class WarmupPolicy
+{
+   /** How many levels below the root are indexed */
+   private int maxDepth = Integer.MAX_VALUE;
+
+   /** Whether to index archives nested in the tree */
+   private boolean includeNestedArchives = true;
+
+   /** The filter for the files whose contents are read ahead */
+   private VirtualFileFilter prefetchFilter;
+
+   /**
+    * How many levels below the root are indexed<p>
+    *
+    * Default: no limit
+    *
+    * @return the max depth
+    */
+   public int getMaxDepth()
+   {
+      return maxDepth;
+   }
+
+   /**
+    * Set the max depth, 1 only indexes the children of the root.
+    *
+    * @param maxDepth the max depth
+    * @throws IllegalArgumentException if the max depth is less than 1
+    */
+   public void setMaxDepth(int maxDepth)
+   {
+      if (maxDepth < 1)
+         throw new IllegalArgumentException("Max depth must be at least 1: " + maxDepth);
+      this.maxDepth = maxDepth;
+   }
+
+   /**
+    * Whether to index archives nested in the tree<p>
+    *
+    * Default: true
+    *
+    * @return the include nested archives flag
+    */
+   public boolean isIncludeNestedArchives()
+   {
+      return includeNestedArchives;
+   }
+
+   /**
+    * Set the include nested archives flag.
+    *
+    * @param includeNestedArchives the include nested archives flag
+    */
+   public void setIncludeNestedArchives(boolean includeNestedArchives)
+   {
+      this.includeNestedArchives = includeNestedArchives;
+   }
+
+   /**
+    * Get the filter for the leaves whose contents are read ahead,
+    * e.g. a suffix filter for ".class"<p>
+    *
+    * Default: null, nothing is read
+    *
+    * @return the prefetch filter
+    */
+   public VirtualFileFilter getPrefetchFilter()
+   {
+      return prefetchFilter;
+   }
+
+   /**
+    * Set the prefetch filter.
+    *
+    * @param prefetchFilter the prefetch filter, null to read nothing
+    */
+   public void setPrefetchFilter(VirtualFileFilter prefetchFilter)
+   {
+      this.prefetchFilter = prefetchFilter;
+   }
+}
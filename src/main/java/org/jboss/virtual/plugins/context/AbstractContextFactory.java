@@ -37,6 +37,9 @@ public abstract class AbstractContextFactory implements VFSContextFactory
 {
    private String[] protocols;
 
+   /** The live contexts created by this factory */
+   private final ContextRegistry registry = new ContextRegistry();
+
    protected AbstractContextFactory(String... protocols)
    {
       this.protocols = protocols;
@@ -47,6 +50,16 @@ public abstract class AbstractContextFactory implements VFSContextFactory
       return protocols;
    }
 
+   /**
+    * Get the registry of live contexts created by this factory.
+    *
+    * @return the context registry
+    */
+   public ContextRegistry getContextRegistry()
+   {
+      return registry;
+   }
+
    /**
     * Check if URL param is already VFS URL.
     *
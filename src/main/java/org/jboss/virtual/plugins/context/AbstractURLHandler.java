@@ -31,6 +31,7 @@ import java.net.URL;
 import java.net.URLConnection;
 
 import org.jboss.virtual.VFSUtils;
+import org.jboss.virtual.VirtualFileAttributes;
 import org.jboss.virtual.spi.VFSContext;
 import org.jboss.virtual.spi.VirtualFileHandler;
 
@@ -45,9 +46,15 @@ public abstract class AbstractURLHandler extends AbstractVirtualFileHandler
    /** serialVersionUID */
    private static final long serialVersionUID = 1L;
 
+   /** How long in ms the metadata read from a url is reused */
+   private static final long metadataCacheTime = VFSUtils.getLongProperty(VFSUtils.URL_METADATA_CACHE_TIME_KEY, 1000);
+
    /** The url */
    private final URL url;
 
+   /** The last metadata read from the url */
+   private transient volatile Metadata metadata;
+
    /**
     * Create a newURLHandler.
     * 
@@ -63,7 +70,6 @@ public abstract class AbstractURLHandler extends AbstractVirtualFileHandler
       if (url == null)
          throw new IllegalArgumentException("Null url");
       this.url = url;
-      initCacheLastModified();
    }
 
    /**
@@ -93,24 +99,54 @@ public abstract class AbstractURLHandler extends AbstractVirtualFileHandler
       return conn;
    }
 
+   /**
+    * Not called any more, the baseline for modification checks is taken
+    * from the first metadata read or set by the subclass constructor.
+    *
+    * @deprecated set {@link #cachedLastModified} in the constructor instead
+    */
+   @Deprecated
    protected void initCacheLastModified()
    {
-      try
+   }
+
+   /**
+    * Get the metadata, reading it from the url when it is missing or too old.
+    * The first read is the baseline for modification checks, so creating a
+    * handler doesn't open a connection.
+    *
+    * @return the metadata
+    * @throws IOException for any error
+    */
+   private Metadata getMetadata() throws IOException
+   {
+      Metadata current = metadata;
+      if (current == null || current.isStale())
       {
          URLConnection c = openConnection();
          try
          {
-            this.cachedLastModified = c.getLastModified();
+            current = new Metadata(c.getLastModified(), c.getContentLength());
          }
          finally
          {
             closeConnection(c);
          }
+         if (cachedLastModified == 0)
+            cachedLastModified = current.lastModified;
+         metadata = current;
       }
-      catch (IOException e)
-      {
-         throw new RuntimeException(e);
-      }
+      return current;
+   }
+
+   /**
+    * Read the metadata again on next use, modification checks always look at the url.
+    */
+   @Override
+   public boolean hasBeenModified() throws IOException
+   {
+      metadata = null;
+      return super.hasBeenModified();
    }
 
    private void closeConnection(URLConnection c)
@@ -145,29 +181,13 @@ public abstract class AbstractURLHandler extends AbstractVirtualFileHandler
    public long getLastModified() throws IOException
    {
       checkClosed();
-      URLConnection c = openConnection();
-      try
-      {
-         return c.getLastModified();
-      }
-      finally
-      {
-         closeConnection(c);
-      }
+      return getMetadata().lastModified;
    }
 
    public long getSize() throws IOException
    {
       checkClosed();
-      URLConnection c = openConnection();
-      try
-      {
-         return c.getContentLength();
-      }
-      finally
-      {
-         closeConnection(c);
-      }
+      return getMetadata().size;
    }
 
    /**
@@ -179,15 +199,7 @@ public abstract class AbstractURLHandler extends AbstractVirtualFileHandler
     */
    public boolean exists() throws IOException
    {
-      URLConnection c = openConnection();
-      try
-      {
-         return c.getLastModified() != 0;
-      }
-      finally
-      {
-         closeConnection(c);
-      }
+      return getMetadata().lastModified != 0;
    }
 
    public boolean isHidden() throws IOException
@@ -196,6 +208,22 @@ public abstract class AbstractURLHandler extends AbstractVirtualFileHandler
       return false;
    }
 
+   /**
+    * Get the attributes from a single connection, existence
+    * is based on the last modified time like {@link #exists()}.
+    *
+    * @return the attributes
+    * @throws IOException for any error
+    */
+   protected VirtualFileAttributes getConnectionAttributes() throws IOException
+   {
+      checkClosed();
+      Metadata current = getMetadata();
+      if (current.lastModified == 0)
+         return VirtualFileAttributes.MISSING;
+      return new VirtualFileAttributes(true, isLeaf(), isHidden(), current.size, current.lastModified);
+   }
+
    public InputStream openStream() throws IOException
    {
       checkClosed();
@@ -207,4 +235,35 @@ public abstract class AbstractURLHandler extends AbstractVirtualFileHandler
    {
       return VFSUtils.toURI(url);
    }
+
+   /**
+    * Metadata read from one connection
+    */
+   private static class Metadata
+   {
+      /** The last modified time */
+      final long lastModified;
+
+      /** The content length */
+      final long size;
+
+      /** When it was read */
+      private final long readTime = System.currentTimeMillis();
+
+      Metadata(long lastModified, long size)
+      {
+         this.lastModified = lastModified;
+         this.size = size;
+      }
+
+      /**
+       * Whether it should be read again
+       *
+       * @return true when too old
+       */
+      boolean isStale()
+      {
+         return System.currentTimeMillis() - readTime >= metadataCacheTime;
+      }
+   }
 }
@@ -26,13 +26,15 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.MalformedURLException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.jboss.logging.Logger;
 import org.jboss.virtual.VFS;
 import org.jboss.virtual.VFSUtils;
-import org.jboss.virtual.VirtualFile;
+import org.jboss.virtual.VirtualFileChangeListener;
 import org.jboss.virtual.VirtualFileFilter;
 import org.jboss.virtual.VisitorAttributes;
 import org.jboss.virtual.spi.VFSContext;
@@ -63,6 +65,9 @@ public abstract class AbstractVFSContext implements VFSContext
    /** Root's peer within another context */
    private VirtualFileHandler rootPeer;
 
+   /** The change listeners registered through this context, the monitor only holds them weakly */
+   private final List<ChangeMonitor.Registration> changeRegistrations = new CopyOnWriteArrayList<ChangeMonitor.Registration>();
+
    /**
     * Create a new AbstractVFSContext.
     * 
@@ -301,8 +306,7 @@ public abstract class AbstractVFSContext implements VFSContext
          }
 
          // Recurse when asked
-         VirtualFile file = child.getVirtualFile();
-         if ( isLeaf == false && recurseFilter != null && recurseFilter.accepts(file))
+         if (isLeaf == false && recurseFilter != null && VFSUtils.accepts(recurseFilter, child))
          {
             try
             {
@@ -320,6 +324,100 @@ public abstract class AbstractVFSContext implements VFSContext
       }
    }
    
+   public void addChangeListener(VirtualFileHandler handler, VirtualFileChangeListener listener) throws IOException
+   {
+      if (handler == null)
+         throw new IllegalArgumentException("Null handler");
+      if (listener == null)
+         throw new IllegalArgumentException("Null listener");
+
+      // snapshots come from the context that really holds the handler, e.g. a mounted archive
+      AbstractVFSContext context = this;
+      VirtualFileHandler root = handler;
+      if (root instanceof DelegatingHandler)
+         root = ((DelegatingHandler) root).getDelegate();
+      if (root instanceof AbstractVirtualFileHandler)
+      {
+         VFSContext local = ((AbstractVirtualFileHandler) root).getLocalVFSContext();
+         if (local instanceof AbstractVFSContext)
+            context = (AbstractVFSContext) local;
+      }
+
+      ChangeMonitor.Registration registration = new ChangeMonitor.Registration(context, handler, root, listener);
+      registration.init();
+      changeRegistrations.add(registration);
+      ChangeMonitor.getInstance().register(registration);
+   }
+
+   public boolean removeChangeListener(VirtualFileChangeListener listener)
+   {
+      if (listener == null)
+         throw new IllegalArgumentException("Null listener");
+
+      boolean removed = false;
+      for (ChangeMonitor.Registration registration : changeRegistrations)
+      {
+         if (registration.getListener() == listener)
+         {
+            changeRegistrations.remove(registration);
+            ChangeMonitor.getInstance().unregister(registration);
+            removed = true;
+         }
+      }
+      return removed;
+   }
+
+   /**
+    * Drop the change listeners added through a handler, e.g. when it is closed.
+    *
+    * @param handler the handler
+    */
+   void removeChangeListeners(VirtualFileHandler handler)
+   {
+      for (ChangeMonitor.Registration registration : changeRegistrations)
+      {
+         if (registration.getOwner() == handler)
+         {
+            changeRegistrations.remove(registration);
+            ChangeMonitor.getInstance().unregister(registration);
+         }
+      }
+   }
+
+   /**
+    * Get the current state of a subtree, used to detect changes.
+    *
+    * This walks the handlers, contexts that can do it cheaper should override.
+    *
+    * @param root the subtree root
+    * @return map of path name to last modified time, empty if the root no longer exists
+    * @throws IOException for any error
+    */
+   protected Map<String, Long> getChangeSnapshot(VirtualFileHandler root) throws IOException
+   {
+      Map<String, Long> snapshot = new HashMap<String, Long>();
+      if (root.exists())
+         addChangeSnapshot(root, snapshot);
+      return snapshot;
+   }
+
+   /**
+    * Add a handler and its children to a snapshot.
+    *
+    * @param handler the handler
+    * @param snapshot the snapshot
+    * @throws IOException for any error
+    */
+   private void addChangeSnapshot(VirtualFileHandler handler, Map<String, Long> snapshot) throws IOException
+   {
+      snapshot.put(handler.getPathName(), handler.getLastModified());
+      if (handler.isLeaf() == false)
+      {
+         for (VirtualFileHandler child : handler.getChildren(true))
+            addChangeSnapshot(child, snapshot);
+      }
+   }
+
    @Override
    public String toString()
    {
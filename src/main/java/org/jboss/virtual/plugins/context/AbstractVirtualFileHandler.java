@@ -31,12 +31,21 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jboss.logging.Logger;
 import org.jboss.virtual.VFSUtils;
 import org.jboss.virtual.VirtualFile;
+import org.jboss.virtual.VirtualFileAttributes;
+import org.jboss.virtual.VirtualFileChannel;
+import org.jboss.virtual.VirtualPath;
 import org.jboss.virtual.plugins.vfs.helpers.PathTokenizer;
 import org.jboss.virtual.spi.VFSContext;
 import org.jboss.virtual.spi.VFSContextFactory;
@@ -98,6 +107,9 @@ public abstract class AbstractVirtualFileHandler implements VirtualFileHandler
    /** The vfsPath */
    private transient String vfsPath;
 
+   /** The path name relative to the local context, the key for context-internal lookups */
+   private transient String localPath;
+
    /** The reference count */
    private transient AtomicInteger references = new AtomicInteger(0);
 
@@ -122,6 +134,7 @@ public abstract class AbstractVirtualFileHandler implements VirtualFileHandler
       this.parent = parent;
       this.name = VFSUtils.fixName(name);
       this.vfsPath = null; // nullify possible invalid vfsPath initializations when running with debugger
+      this.localPath = null;
    }
 
    /**
@@ -187,6 +200,64 @@ public abstract class AbstractVirtualFileHandler implements VirtualFileHandler
       return hasBeenModified;
    }
 
+   /**
+    * Get the basic attributes.<p>
+    *
+    * By default each attribute is read separately; subclasses
+    * that can read them together should override this.
+    *
+    * @return the attributes
+    * @throws IOException for any error
+    */
+   public VirtualFileAttributes getAttributes() throws IOException
+   {
+      if (exists() == false)
+         return VirtualFileAttributes.MISSING;
+      return new VirtualFileAttributes(true, isLeaf(), isHidden(), getSize(), getLastModified());
+   }
+
+   /**
+    * Open a channel reading the file contents from any position.<p>
+    *
+    * By default this works on the streams of this handler; subclasses
+    * with direct access to the contents should override this.
+    *
+    * @return the channel
+    * @throws IOException for any error
+    */
+   public VirtualFileChannel openChannel() throws IOException
+   {
+      checkClosed();
+      return new InputStreamChannel(this);
+   }
+
+   /**
+    * Read the whole file contents.<p>
+    *
+    * By default the stream is read into an array of the size of this handler.
+    *
+    * @return the contents
+    * @throws IOException for any error
+    */
+   public byte[] getBytes() throws IOException
+   {
+      checkClosed();
+      return VFSUtils.readBytesAndClose(openStream(), getSize());
+   }
+
+   /**
+    * Get the whole file contents as a read only buffer.<p>
+    *
+    * By default this wraps the bytes of the file.
+    *
+    * @return the contents
+    * @throws IOException for any error
+    */
+   public ByteBuffer getBuffer() throws IOException
+   {
+      return ByteBuffer.wrap(getBytes()).asReadOnlyBuffer();
+   }
+
    public String getName()
    {
       return name;
@@ -216,6 +287,7 @@ public abstract class AbstractVirtualFileHandler implements VirtualFileHandler
    public void setPathName(String path)
    {
       this.vfsPath = path;
+      this.localPath = null;
    }
 
    /**
@@ -225,6 +297,11 @@ public abstract class AbstractVirtualFileHandler implements VirtualFileHandler
     */
    public String getLocalPathName()
    {
+      // computed once, contexts use it as the key for every metadata lookup
+      String result = localPath;
+      if (result != null)
+         return result;
+
       try
       {
          VirtualFileHandler handler = getLocalVFSContext().getRoot();
@@ -232,11 +309,13 @@ public abstract class AbstractVirtualFileHandler implements VirtualFileHandler
          String pathName = getPathName();
          int len = rootPathName.length();
          if (len == 0)
-            return pathName;
+            result = pathName;
          else if (rootPathName.length() < pathName.length())
-            return pathName.substring(len + 1);
+            result = pathName.substring(len + 1);
          else
-            return "";
+            result = "";
+         localPath = result;
+         return result;
       }
       catch (IOException ex)
       {
@@ -448,7 +527,12 @@ public abstract class AbstractVirtualFileHandler implements VirtualFileHandler
    public void close() 
    {
       if (decrement() == 0)
+      {
+         VFSContext vfsContext = getVFSContext();
+         if (vfsContext instanceof AbstractVFSContext)
+            ((AbstractVFSContext) vfsContext).removeChangeListeners(this);
          doClose();
+      }
    }
 
    /**
@@ -496,25 +580,39 @@ public abstract class AbstractVirtualFileHandler implements VirtualFileHandler
    public VirtualFileHandler structuredFindChild(String path) throws IOException
    {
       checkClosed();
+      return structuredFindChild(new VirtualPath(path));
+   }
+
+   /**
+    * Structured implementation of get child for an already tokenized path
+    *
+    * @param path the path
+    * @return the handler or <code>null</code> if it doesn't exist
+    * @throws IOException for any error accessing the virtual file system
+    * @throws IllegalArgumentException for a null path
+    */
+   public VirtualFileHandler structuredFindChild(VirtualPath path) throws IOException
+   {
+      if (path == null)
+         throw new IllegalArgumentException("Null path");
+
+      checkClosed();
 
-      // Parse the path
-      List<String> tokens = PathTokenizer.getTokens(path);
-      if (tokens == null || tokens.size() == 0)
+      if (path.isEmpty())
          return this;
 
       // Go through each context starting from ours
       // check the parents are not leaves.
       VirtualFileHandler current = this;
-      for (int i = 0; i < tokens.size(); ++i)
+      for (int i = 0; i < path.size(); ++i)
       {
          if (current == null)
             return null;
 
-         String token = tokens.get(i);
-         if (PathTokenizer.isCurrentToken(token))
+         if (path.isCurrentToken(i))
             continue;
 
-         if (PathTokenizer.isReverseToken(token))
+         if (path.isReverseToken(i))
          {
             VirtualFileHandler parent = current.getParent();
             if (parent == null) // TODO - still IOE or null?
@@ -532,11 +630,11 @@ public abstract class AbstractVirtualFileHandler implements VirtualFileHandler
          else if (current instanceof StructuredVirtualFileHandler)
          {
             StructuredVirtualFileHandler structured = (StructuredVirtualFileHandler)current;
-            current = structured.createChildHandler(token);
+            current = structured.createChildHandler(path.getToken(i));
          }
          else
          {
-            String remainingPath = PathTokenizer.getRemainingPath(tokens, i);
+            String remainingPath = path.getRemainingPath(i);
             return current.getChild(remainingPath);
          }
       }
@@ -545,6 +643,133 @@ public abstract class AbstractVirtualFileHandler implements VirtualFileHandler
       return current;
    }
 
+   /**
+    * Get a child for an already tokenized path.
+    *
+    * Handlers that resolve children with {@link #structuredFindChild(String)}
+    * override this to walk the tokens directly.
+    *
+    * @param path the path
+    * @return the handler or <code>null</code> if it doesn't exist
+    * @throws IOException for any error accessing the virtual file system
+    * @throws IllegalArgumentException for a null path
+    */
+   public VirtualFileHandler getChild(VirtualPath path) throws IOException
+   {
+      if (path == null)
+         throw new IllegalArgumentException("Null path");
+
+      return getChild(path.getPath());
+   }
+
+   /**
+    * Get the children for several already tokenized paths.<p>
+    *
+    * Paths are walked token by token and every directory reached is remembered,
+    * so paths sharing leading directories only resolve them once.
+    * The rest of the paths leading into a mounted context are passed to that
+    * context in one call. Paths with . or .. tokens are resolved on their own.
+    *
+    * @param paths the paths
+    * @return the handlers found, by path in the order of the paths
+    * @throws IOException for any error accessing the virtual file system
+    * @throws IllegalArgumentException for null paths
+    */
+   public Map<VirtualPath, VirtualFileHandler> getChildren(Collection<VirtualPath> paths) throws IOException
+   {
+      if (paths == null)
+         throw new IllegalArgumentException("Null paths");
+
+      checkClosed();
+
+      Map<VirtualPath, VirtualFileHandler> found = new HashMap<VirtualPath, VirtualFileHandler>();
+      Map<String, VirtualFileHandler> walked = new HashMap<String, VirtualFileHandler>();
+      Map<String, MountedPaths> mounted = new LinkedHashMap<String, MountedPaths>();
+      for (VirtualPath path : paths)
+      {
+         if (path == null)
+            throw new IllegalArgumentException("Null path");
+
+         VirtualFileHandler child;
+         if (path.hasSpecialTokens())
+            child = getChild(path);
+         else
+            child = walkChild(path, walked, mounted);
+         if (child != null)
+            found.put(path, child);
+      }
+
+      for (MountedPaths group : mounted.values())
+      {
+         Map<VirtualPath, VirtualFileHandler> children = group.handler.getChildren(group.paths.keySet());
+         for (Map.Entry<VirtualPath, List<VirtualPath>> entry : group.paths.entrySet())
+         {
+            VirtualFileHandler child = children.get(entry.getKey());
+            if (child != null)
+            {
+               for (VirtualPath path : entry.getValue())
+                  found.put(path, child);
+            }
+         }
+      }
+
+      Map<VirtualPath, VirtualFileHandler> result = new LinkedHashMap<VirtualPath, VirtualFileHandler>();
+      for (VirtualPath path : paths)
+      {
+         VirtualFileHandler child = found.get(path);
+         if (child != null)
+            result.put(path, child);
+      }
+      return result;
+   }
+
+   /**
+    * Walk a path without . or .. tokens, reusing directories already walked.
+    * The rest of a path leading into a mounted context is left for that context.
+    *
+    * @param path the path
+    * @param walked the handlers walked so far by simple path, null for missing ones
+    * @param mounted the paths left for mounted contexts, by the simple path of their mount point
+    * @return the handler or <code>null</code> if it doesn't exist or was left for a mounted context
+    * @throws IOException for any error accessing the virtual file system
+    */
+   private VirtualFileHandler walkChild(VirtualPath path, Map<String, VirtualFileHandler> walked, Map<String, MountedPaths> mounted) throws IOException
+   {
+      VirtualFileHandler current = this;
+      StringBuilder prefix = new StringBuilder();
+      for (int i = 0; i < path.size() && current != null; ++i)
+      {
+         String parentKey = prefix.toString();
+         String token = path.getToken(i);
+         if (i > 0)
+            prefix.append('/');
+         prefix.append(token);
+
+         String key = prefix.toString();
+         if (walked.containsKey(key))
+         {
+            current = walked.get(key);
+         }
+         else if (current instanceof DelegatingHandler)
+         {
+            MountedPaths group = mounted.get(parentKey);
+            if (group == null)
+            {
+               group = new MountedPaths((DelegatingHandler) current);
+               mounted.put(parentKey, group);
+            }
+            group.add(new VirtualPath(path.getRemainingPath(i)), path);
+            return null;
+         }
+         else
+         {
+            current = current.getChild(token);
+            walked.put(key, current);
+         }
+      }
+      return current;
+   }
+
    /**
     * Simple implementation of findChild
     * 
@@ -579,6 +804,7 @@ public abstract class AbstractVirtualFileHandler implements VirtualFileHandler
       {
          AbstractVirtualFileHandler avfh = (AbstractVirtualFileHandler)replacement;
          avfh.parent = this;
+         avfh.localPath = null;
       }
    }
 
@@ -690,4 +916,38 @@ public abstract class AbstractVirtualFileHandler implements VirtualFileHandler
       this.references = new AtomicInteger(0);
       this.vfsUrl = (URL)fields.get("vfsUrl", null);
    }
+
+   /**
+    * The paths left for a mounted context.
+    */
+   private static class MountedPaths
+   {
+      /** The mount point */
+      private final DelegatingHandler handler;
+
+      /** The original paths, by their rest below the mount point */
+      private final Map<VirtualPath, List<VirtualPath>> paths = new LinkedHashMap<VirtualPath, List<VirtualPath>>();
+
+      private MountedPaths(DelegatingHandler handler)
+      {
+         this.handler = handler;
+      }
+
+      /**
+       * Add a path.
+       *
+       * @param remaining the rest below the mount point
+       * @param path the original path
+       */
+      private void add(VirtualPath remaining, VirtualPath path)
+      {
+         List<VirtualPath> originals = paths.get(remaining);
+         if (originals == null)
+         {
+            originals = new ArrayList<VirtualPath>(1);
+            paths.put(remaining, originals);
+         }
+         originals.add(path);
+      }
+   }
 }
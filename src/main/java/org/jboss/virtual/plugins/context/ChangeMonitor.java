@@ -0,0 +1,473 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual.plugins.context;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.logging.Logger;
+import org.jboss.virtual.VFSUtils;
+import org.jboss.virtual.VirtualFileChangeEvent;
+import org.jboss.virtual.VirtualFileChangeListener;
+import org.jboss.virtual.plugins.vfs.helpers.DaemonThreadFactory;
+import org.jboss.virtual.spi.VirtualFileHandler;
+
+/**
+ * A monitoring object that periodically compares snapshots of the subtrees
+ * that have change listeners, and delivers the differences once a subtree
+ * has been quiet for the configured period.
+ *
+ * Snapshots are provided by the owning context, see
+ * {@link AbstractVFSContext#getChangeSnapshot(VirtualFileHandler)}.
+ *
+ * The timer only schedules the checks, each subtree is checked and its
+ * listener called on a fixed pool sized by
+ * {@link VFSUtils#CHANGE_CHECK_THREADS_KEY}, one thread by default, so the
+ * checks run one after another and never hold up the timer. Registrations are held weakly here and
+ * strongly by the context they were added through, so they go away with
+ * that context.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class ChangeMonitor
+{
+   /** Logger */
+   private static final Logger log = Logger.getLogger(ChangeMonitor.class);
+
+   /** Default time between checks */
+   private static final long DEFAULT_CHECK_PERIOD = 1000;
+
+   /** Default time a subtree has to be unchanged before events are delivered */
+   private static final long DEFAULT_QUIET_PERIOD = 2000;
+
+   /** There is only one instance that serves all contexts */
+   private static ChangeMonitor singleton;
+
+   /** The monitored subtrees */
+   private Queue<WeakReference<Registration>> registrations = new ConcurrentLinkedQueue<WeakReference<Registration>>();
+
+   /** Timer used to schedule the checks */
+   private Timer timer;
+
+   /** Default number of threads running the checks */
+   private static final int DEFAULT_CHECK_THREADS = 1;
+
+   /** Runs the checks and calls the listeners */
+   private Executor checkExecutor;
+
+   /** Time between checks */
+   private long checkPeriod;
+
+   /** Time a subtree has to be unchanged before events are delivered */
+   private long quietPeriod;
+
+   /**
+    * Private constructor - to force retrieval through {@link #getInstance()}
+    */
+   private ChangeMonitor()
+   {
+      checkPeriod = VFSUtils.getLongProperty(VFSUtils.CHANGE_CHECK_PERIOD_KEY, DEFAULT_CHECK_PERIOD);
+      quietPeriod = VFSUtils.getLongProperty(VFSUtils.CHANGE_QUIET_PERIOD_KEY, DEFAULT_QUIET_PERIOD);
+      int checkThreads = VFSUtils.getIntProperty(VFSUtils.CHANGE_CHECK_THREADS_KEY, DEFAULT_CHECK_THREADS);
+      checkExecutor = Executors.newFixedThreadPool(Math.max(1, checkThreads), new DaemonThreadFactory("VFS Change Check"));
+   }
+
+   /**
+    * Factory method to be used to retrieve reference to ChangeMonitor
+    *
+    * @return the change monitor
+    */
+   public synchronized static ChangeMonitor getInstance()
+   {
+      if (singleton == null)
+         singleton = new ChangeMonitor();
+
+      return singleton;
+   }
+
+   /**
+    * Get the time between checks.
+    *
+    * @return the check period in milliseconds
+    */
+   public synchronized long getCheckPeriod()
+   {
+      return checkPeriod;
+   }
+
+   /**
+    * Set the time between checks.
+    *
+    * @param checkPeriod the check period in milliseconds
+    */
+   public synchronized void setCheckPeriod(long checkPeriod)
+   {
+      if (checkPeriod <= 0)
+         throw new IllegalArgumentException("Check period must be positive: " + checkPeriod);
+
+      this.checkPeriod = checkPeriod;
+      if (timer != null)
+      {
+         timer.cancel();
+         timer = null;
+         startTimer();
+      }
+   }
+
+   /**
+    * Get the time a subtree has to be unchanged before its changes are delivered.
+    *
+    * @return the quiet period in milliseconds
+    */
+   public synchronized long getQuietPeriod()
+   {
+      return quietPeriod;
+   }
+
+   /**
+    * Set the time a subtree has to be unchanged before its changes are delivered.
+    *
+    * @param quietPeriod the quiet period in milliseconds
+    */
+   public synchronized void setQuietPeriod(long quietPeriod)
+   {
+      if (quietPeriod < 0)
+         throw new IllegalArgumentException("Negative quiet period: " + quietPeriod);
+
+      this.quietPeriod = quietPeriod;
+   }
+
+   /**
+    * Register a subtree with this monitor
+    *
+    * @param registration the registration
+    */
+   synchronized void register(Registration registration)
+   {
+      registrations.add(new WeakReference<Registration>(registration));
+      if (timer == null)
+         startTimer();
+      if (log.isTraceEnabled())
+         log.trace("Registered: " + registration);
+   }
+
+   /**
+    * Unregister a subtree from this monitor
+    *
+    * @param registration the registration
+    */
+   synchronized void unregister(Registration registration)
+   {
+      for (Iterator<WeakReference<Registration>> it = registrations.iterator(); it.hasNext();)
+      {
+         Registration other = it.next().get();
+         if (other == null || other == registration)
+            it.remove();
+      }
+      stopIfIdle();
+      if (log.isTraceEnabled())
+         log.trace("Unregistered: " + registration);
+   }
+
+   /**
+    * Stop the timer when nothing is registered
+    */
+   private synchronized void stopIfIdle()
+   {
+      if (registrations.isEmpty() && timer != null)
+      {
+         timer.cancel();
+         timer = null;
+      }
+   }
+
+   /**
+    * Start the timer
+    */
+   private void startTimer()
+   {
+      timer = new Timer("VFS Change Monitor", true);
+      timer.schedule(new ChangeTimerTask(), checkPeriod, checkPeriod);
+   }
+
+   /**
+    * Schedule a check of all registered subtrees whose last check has finished,
+    * and forget the ones whose context has been collected
+    */
+   void checkAll()
+   {
+      boolean collected = false;
+      for (Iterator<WeakReference<Registration>> it = registrations.iterator(); it.hasNext();)
+      {
+         final Registration registration = it.next().get();
+         if (registration == null)
+         {
+            it.remove();
+            collected = true;
+         }
+         else if (registration.schedule())
+         {
+            checkExecutor.execute(new Runnable()
+            {
+               public void run()
+               {
+                  try
+                  {
+                     registration.check(System.currentTimeMillis(), getQuietPeriod());
+                  }
+                  finally
+                  {
+                     registration.done();
+                  }
+               }
+            });
+         }
+      }
+      if (collected)
+         stopIfIdle();
+   }
+
+   /** Timer task that runs the checks */
+   class ChangeTimerTask extends TimerTask
+   {
+      public void run()
+      {
+         checkAll();
+      }
+   }
+
+   /**
+    * A listener interested in a subtree
+    */
+   static class Registration
+   {
+      /** The context providing the snapshots */
+      private final AbstractVFSContext context;
+
+      /** The handler the listener was added through */
+      private final VirtualFileHandler owner;
+
+      /** The subtree root */
+      private final VirtualFileHandler root;
+
+      /** The listener */
+      private final VirtualFileChangeListener listener;
+
+      /** The last snapshot, path name to last modified */
+      private Map<String, Long> snapshot;
+
+      /** Changes not yet delivered, by path name */
+      private Map<String, VirtualFileChangeEvent> pending = new LinkedHashMap<String, VirtualFileChangeEvent>();
+
+      /** When the last change was seen */
+      private long lastChange;
+
+      /** Whether a check is scheduled or running */
+      private final AtomicBoolean scheduled = new AtomicBoolean();
+
+      /**
+       * Create a new Registration.
+       *
+       * @param context the context providing snapshots for root
+       * @param owner the handler the listener was added through
+       * @param root the subtree root
+       * @param listener the listener
+       */
+      Registration(AbstractVFSContext context, VirtualFileHandler owner, VirtualFileHandler root, VirtualFileChangeListener listener)
+      {
+         this.context = context;
+         this.owner = owner;
+         this.root = root;
+         this.listener = listener;
+      }
+
+      /**
+       * Get the handler the listener was added through.
+       *
+       * @return the owner
+       */
+      VirtualFileHandler getOwner()
+      {
+         return owner;
+      }
+
+      /**
+       * Get the listener.
+       *
+       * @return the listener
+       */
+      VirtualFileChangeListener getListener()
+      {
+         return listener;
+      }
+
+      /**
+       * Claim the next check, so checks of one subtree never overlap.
+       *
+       * @return false when the last check is still running
+       */
+      boolean schedule()
+      {
+         return scheduled.compareAndSet(false, true);
+      }
+
+      /**
+       * The check has finished.
+       */
+      void done()
+      {
+         scheduled.set(false);
+      }
+
+      /**
+       * Take the initial snapshot.
+       *
+       * @throws IOException for any error
+       */
+      synchronized void init() throws IOException
+      {
+         snapshot = context.getChangeSnapshot(root);
+      }
+
+      /**
+       * Compare the current state with the last snapshot and deliver
+       * the collected changes once the subtree has been quiet long enough.
+       *
+       * @param now the current time
+       * @param quietPeriod the quiet period
+       */
+      void check(long now, long quietPeriod)
+      {
+         List<VirtualFileChangeEvent> events = null;
+         synchronized (this)
+         {
+            Map<String, Long> current;
+            try
+            {
+               current = context.getChangeSnapshot(root);
+            }
+            catch (Exception e)
+            {
+               log.debug("IGNORING: Failed to check for changes: " + root, e);
+               return;
+            }
+
+            if (compare(current))
+               lastChange = now;
+            snapshot = current;
+
+            if (pending.isEmpty() == false && now - lastChange >= quietPeriod)
+            {
+               events = new ArrayList<VirtualFileChangeEvent>(pending.values());
+               pending.clear();
+            }
+         }
+
+         if (events != null)
+         {
+            try
+            {
+               listener.filesChanged(events);
+            }
+            catch (Throwable t)
+            {
+               log.warn("Change listener failed: " + listener, t);
+            }
+         }
+      }
+
+      /**
+       * Add the differences between the last and the current snapshot to the pending changes.
+       *
+       * @param current the current snapshot
+       * @return true if anything changed
+       */
+      private boolean compare(Map<String, Long> current)
+      {
+         boolean changed = false;
+         for (Map.Entry<String, Long> entry : current.entrySet())
+         {
+            Long previous = snapshot.get(entry.getKey());
+            if (previous == null)
+            {
+               addPending(VirtualFileChangeEvent.Type.CREATED, entry.getKey(), entry.getValue());
+               changed = true;
+            }
+            else if (previous.equals(entry.getValue()) == false)
+            {
+               addPending(VirtualFileChangeEvent.Type.MODIFIED, entry.getKey(), entry.getValue());
+               changed = true;
+            }
+         }
+         for (String pathName : snapshot.keySet())
+         {
+            if (current.containsKey(pathName) == false)
+            {
+               addPending(VirtualFileChangeEvent.Type.DELETED, pathName, 0);
+               changed = true;
+            }
+         }
+         return changed;
+      }
+
+      /**
+       * Merge a change with one already pending for the same path.
+       *
+       * @param type the type of change
+       * @param pathName the path name
+       * @param lastModified the last modified time
+       */
+      private void addPending(VirtualFileChangeEvent.Type type, String pathName, long lastModified)
+      {
+         VirtualFileChangeEvent previous = pending.remove(pathName);
+         if (previous != null)
+         {
+            VirtualFileChangeEvent.Type before = previous.getType();
+            // created and deleted again before anyone was told
+            if (before == VirtualFileChangeEvent.Type.CREATED && type == VirtualFileChangeEvent.Type.DELETED)
+               return;
+            if (before == VirtualFileChangeEvent.Type.CREATED)
+               type = VirtualFileChangeEvent.Type.CREATED;
+            else if (before == VirtualFileChangeEvent.Type.DELETED && type == VirtualFileChangeEvent.Type.CREATED)
+               type = VirtualFileChangeEvent.Type.MODIFIED;
+         }
+         pending.put(pathName, new VirtualFileChangeEvent(type, pathName, lastModified));
+      }
+
+      public String toString()
+      {
+         return root + " -> " + listener;
+      }
+   }
+}
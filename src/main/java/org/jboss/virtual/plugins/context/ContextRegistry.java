@@ -0,0 +1,527 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual.plugins.context;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jboss.logging.Logger;
+import org.jboss.virtual.VFSUtils;
+import org.jboss.virtual.spi.VFSContext;
+import org.jboss.virtual.spi.VirtualFileHandler;
+
+/**
+ * Registry of live contexts, keyed by their normalized root and options,
+ * so that repeated lookups for the same root share one context.
+ *
+ * A context is held strongly while it keeps being looked up, and weakly once it
+ * has been idle for longer than the idle time or pushed out by more recently used
+ * ones. It stays registered for as long as somebody still references it, and is
+ * dropped once it has been collected. A context whose root no longer exists, or
+ * whose options have been changed since, is not handed out for the old key again.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class ContextRegistry
+{
+   /** The log */
+   private static final Logger log = Logger.getLogger(ContextRegistry.class);
+
+   /** The default maximum number of strongly held contexts */
+   private static final int DEFAULT_MAX_SIZE = 256;
+
+   /** The default idle time */
+   private static final long DEFAULT_IDLE_TIME = 60000;
+
+   /** The default time a context's root is trusted to exist */
+   private static final long DEFAULT_CHECK_PERIOD = 1000;
+
+   /** The entries */
+   private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+   /** Collected contexts */
+   private final ReferenceQueue<VFSContext> collected = new ReferenceQueue<VFSContext>();
+
+   /** The number of strongly held contexts */
+   private final AtomicInteger strongCount = new AtomicInteger();
+
+   /** Only one thread sweeps, the others carry on */
+   private final ReentrantLock sweepLock = new ReentrantLock();
+
+   /** The maximum number of strongly held contexts, 0 disables the registry */
+   private volatile int maxSize;
+
+   /** The time after which an unused context is only held weakly */
+   private volatile long idleTime;
+
+   /** The time a context's root is trusted to exist before it is checked again */
+   private volatile long checkPeriod;
+
+   /** The last sweep */
+   private volatile long lastSweep;
+
+   /**
+    * Create a new ContextRegistry configured from the system properties.
+    */
+   public ContextRegistry()
+   {
+      this(VFSUtils.getIntProperty(VFSUtils.CONTEXT_CACHE_SIZE_KEY, DEFAULT_MAX_SIZE),
+           VFSUtils.getLongProperty(VFSUtils.CONTEXT_CACHE_IDLE_TIME_KEY, DEFAULT_IDLE_TIME));
+   }
+
+   /**
+    * Create a new ContextRegistry.
+    *
+    * @param maxSize the maximum number of strongly held contexts, 0 disables the registry
+    * @param idleTime the time in ms after which an unused context is only held weakly
+    */
+   public ContextRegistry(int maxSize, long idleTime)
+   {
+      this.maxSize = maxSize;
+      this.idleTime = idleTime;
+      this.checkPeriod = VFSUtils.getLongProperty(VFSUtils.CONTEXT_CACHE_CHECK_PERIOD_KEY, DEFAULT_CHECK_PERIOD);
+   }
+
+   /**
+    * Get the maximum number of strongly held contexts.
+    *
+    * @return the maximum size
+    */
+   public int getMaxSize()
+   {
+      return maxSize;
+   }
+
+   /**
+    * Set the maximum number of strongly held contexts, 0 disables the registry.
+    *
+    * @param maxSize the maximum size
+    */
+   public void setMaxSize(int maxSize)
+   {
+      this.maxSize = maxSize;
+      if (maxSize <= 0)
+         clear();
+   }
+
+   /**
+    * Get the idle time.
+    *
+    * @return the idle time in ms
+    */
+   public long getIdleTime()
+   {
+      return idleTime;
+   }
+
+   /**
+    * Set the idle time.
+    *
+    * @param idleTime the idle time in ms
+    */
+   public void setIdleTime(long idleTime)
+   {
+      this.idleTime = idleTime;
+   }
+
+   /**
+    * Get the time a context's root is trusted to exist before it is checked again.
+    *
+    * @return the check period in ms
+    */
+   public long getCheckPeriod()
+   {
+      return checkPeriod;
+   }
+
+   /**
+    * Set the time a context's root is trusted to exist before it is checked again.
+    *
+    * @param checkPeriod the check period in ms, 0 or less checks on every lookup
+    */
+   public void setCheckPeriod(long checkPeriod)
+   {
+      this.checkPeriod = checkPeriod;
+   }
+
+   /**
+    * Get the context registered for a root, creating it if there is none.
+    *
+    * @param root the root, its query holds the options
+    * @param creator creates the context when needed
+    * @return the context
+    * @throws IOException for any error creating the context
+    */
+   public VFSContext getContext(URI root, ContextCreator creator) throws IOException
+   {
+      if (root == null)
+         throw new IllegalArgumentException("Null root");
+      if (creator == null)
+         throw new IllegalArgumentException("Null creator");
+
+      if (maxSize <= 0)
+         return creator.createContext();
+
+      long now = System.currentTimeMillis();
+      sweep(now);
+
+      String rootKey = getRootKey(root);
+      String key = getKey(rootKey, VFSUtils.parseURLQuery(root.getQuery()));
+      Entry entry = entries.get(key);
+      if (entry != null)
+      {
+         VFSContext context = entry.use(now);
+         if (context != null && isCurrent(key, entry, context, now))
+            return context;
+
+         if (entries.remove(key, entry))
+            entry.demote();
+      }
+
+      // creation happens outside of any lock, a concurrent duplicate simply loses
+      VFSContext context = creator.createContext();
+      Entry created = new Entry(key, rootKey, context, now);
+      Entry previous = entries.putIfAbsent(key, created);
+      if (previous != null)
+      {
+         VFSContext existing = previous.use(now);
+         if (existing != null)
+         {
+            created.demote();
+            return existing;
+         }
+         entries.put(key, created);
+         previous.demote();
+      }
+      return context;
+   }
+
+   /**
+    * Remove the context registered for a root.
+    *
+    * @param root the root, its query holds the options
+    * @return true if there was one
+    */
+   public boolean evict(URI root)
+   {
+      if (root == null)
+         throw new IllegalArgumentException("Null root");
+
+      Entry entry = entries.remove(getKey(getRootKey(root), VFSUtils.parseURLQuery(root.getQuery())));
+      if (entry == null)
+         return false;
+      entry.demote();
+      return true;
+   }
+
+   /**
+    * Remove all contexts.
+    */
+   public void clear()
+   {
+      for (Entry entry : entries.values())
+      {
+         if (entries.remove(entry.key, entry))
+            entry.demote();
+      }
+   }
+
+   /**
+    * Get the number of registered contexts.
+    *
+    * @return the size
+    */
+   public int size()
+   {
+      return entries.size();
+   }
+
+   /**
+    * Can the context still be handed out.
+    *
+    * @param context the context
+    * @return true if its root still exists
+    */
+   protected boolean isValid(VFSContext context)
+   {
+      try
+      {
+         VirtualFileHandler root = context.getRoot();
+         return root != null && root.exists();
+      }
+      catch (Exception e)
+      {
+         log.debug("IGNORING: Cannot check root of " + context, e);
+         return false;
+      }
+   }
+
+   /**
+    * Is the context still what was asked for: its options still
+    * match the key and its root has not gone away.
+    *
+    * A context whose options were changed is moved to the key for its new options.
+    *
+    * @param key the key it was found under
+    * @param entry the entry
+    * @param context the context
+    * @param now the current time
+    * @return true if it can be handed out
+    */
+   private boolean isCurrent(String key, Entry entry, VFSContext context, long now)
+   {
+      String current = getKey(entry.rootKey, context.getOptions());
+      if (current.equals(key) == false)
+      {
+         if (entries.remove(key, entry))
+         {
+            Entry moved = new Entry(current, entry.rootKey, context, now);
+            if (entries.putIfAbsent(current, moved) != null)
+               moved.demote();
+            entry.demote();
+         }
+         return false;
+      }
+
+      if (now - entry.lastChecked < checkPeriod)
+         return true;
+      entry.lastChecked = now;
+      return isValid(context);
+   }
+
+   /**
+    * Forget collected contexts, demote idle ones to weak references
+    * and, when too many are held strongly, the least recently used.
+    *
+    * @param now the current time
+    */
+   private void sweep(long now)
+   {
+      for (CollectedContext ref = (CollectedContext) collected.poll(); ref != null; ref = (CollectedContext) collected.poll())
+         entries.remove(ref.key, ref.entry);
+
+      long idle = idleTime;
+      int max = maxSize;
+      boolean idleDue = now - lastSweep >= idle / 2;
+      if (idleDue == false && strongCount.get() <= max)
+         return;
+      if (sweepLock.tryLock() == false)
+         return;
+      try
+      {
+         List<Candidate> candidates = new ArrayList<Candidate>();
+         for (Entry entry : entries.values())
+         {
+            if (entry.isStrong() == false)
+               continue;
+            Candidate candidate = new Candidate(entry);
+            if (idleDue && now - candidate.lastUsed > idle)
+               entry.demote();
+            else
+               candidates.add(candidate);
+         }
+         if (idleDue)
+            lastSweep = now;
+
+         // over the limit, demote the least recently used tenth in one go
+         int target = max - max / 10;
+         if (strongCount.get() > max)
+         {
+            Collections.sort(candidates);
+            for (Candidate candidate : candidates)
+            {
+               if (strongCount.get() <= target)
+                  break;
+               candidate.entry.demote();
+            }
+         }
+      }
+      finally
+      {
+         sweepLock.unlock();
+      }
+   }
+
+   /**
+    * Get the root part of a key, the normalized root without its options.
+    *
+    * @param root the root
+    * @return the root key
+    */
+   private static String getRootKey(URI root)
+   {
+      String key = root.normalize().toString();
+      int query = key.indexOf('?');
+      return query < 0 ? key : key.substring(0, query);
+   }
+
+   /**
+    * Get the key for a root and options, the options in a fixed order.
+    *
+    * @param rootKey the root key
+    * @param options the options
+    * @return the key
+    */
+   private static String getKey(String rootKey, Map<String, String> options)
+   {
+      if (options == null || options.isEmpty())
+         return rootKey;
+      return rootKey + "?" + new TreeMap<String, String>(options);
+   }
+
+   /**
+    * Creates a context on a registry miss.
+    */
+   public interface ContextCreator
+   {
+      /**
+       * Create the context.
+       *
+       * @return the context
+       * @throws IOException for any error
+       */
+      VFSContext createContext() throws IOException;
+   }
+
+   /**
+    * A registered context.
+    */
+   private class Entry
+   {
+      /** The key */
+      private final String key;
+
+      /** The root part of the key */
+      private final String rootKey;
+
+      /** The context while in use */
+      private final AtomicReference<VFSContext> strong = new AtomicReference<VFSContext>();
+
+      /** The context once idle */
+      private final CollectedContext weak;
+
+      /** The last use */
+      private volatile long lastUsed;
+
+      /** The last time the root was checked */
+      private volatile long lastChecked;
+
+      private Entry(String key, String rootKey, VFSContext context, long now)
+      {
+         this.key = key;
+         this.rootKey = rootKey;
+         weak = new CollectedContext(context, this);
+         lastUsed = now;
+         lastChecked = now;
+         if (strong.getAndSet(context) == null)
+            strongCount.incrementAndGet();
+      }
+
+      /**
+       * Use the context.
+       *
+       * @param now the current time
+       * @return the context or null if it has been collected
+       */
+      private VFSContext use(long now)
+      {
+         VFSContext context = weak.get();
+         if (context != null)
+         {
+            lastUsed = now;
+            if (strong.getAndSet(context) == null)
+               strongCount.incrementAndGet();
+         }
+         return context;
+      }
+
+      /**
+       * Only hold the context weakly.
+       */
+      private void demote()
+      {
+         if (strong.getAndSet(null) != null)
+            strongCount.decrementAndGet();
+      }
+
+      /**
+       * Is the context held strongly.
+       *
+       * @return true when strongly held
+       */
+      private boolean isStrong()
+      {
+         return strong.get() != null;
+      }
+   }
+
+   /**
+    * A demotion candidate, with its last use fixed for sorting.
+    */
+   private static class Candidate implements Comparable<Candidate>
+   {
+      private final Entry entry;
+      private final long lastUsed;
+
+      private Candidate(Entry entry)
+      {
+         this.entry = entry;
+         this.lastUsed = entry.lastUsed;
+      }
+
+      public int compareTo(Candidate other)
+      {
+         return lastUsed < other.lastUsed ? -1 : (lastUsed == other.lastUsed ? 0 : 1);
+      }
+   }
+
+   /**
+    * A weakly held context that knows its entry, so it can be dropped once collected.
+    */
+   private class CollectedContext extends WeakReference<VFSContext>
+   {
+      /** The key */
+      private final String key;
+
+      /** The entry */
+      private final Entry entry;
+
+      private CollectedContext(VFSContext context, Entry entry)
+      {
+         super(context, collected);
+         this.key = entry.key;
+         this.entry = entry;
+      }
+   }
+}
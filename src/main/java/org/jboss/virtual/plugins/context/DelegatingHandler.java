@@ -28,9 +28,15 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.jboss.util.JBossObject;
+import org.jboss.virtual.VirtualFileAttributes;
+import org.jboss.virtual.VirtualFileChannel;
+import org.jboss.virtual.VirtualPath;
 import org.jboss.virtual.spi.VFSContext;
 import org.jboss.virtual.spi.VirtualFileHandler;
 
@@ -88,6 +94,18 @@ public class DelegatingHandler extends AbstractVirtualFileHandler
       return delegate;
    }
 
+   /**
+    * Get the delegate for an operation that can fail with an IOException,
+    * so a delegate that is resolved lazily can report why it is missing.
+    *
+    * @return the delegate
+    * @throws IOException for any error resolving the delegate
+    */
+   protected VirtualFileHandler resolveDelegate() throws IOException
+   {
+      return getDelegate();
+   }
+
    /**
     * Set the vfs url.
     *
@@ -103,13 +121,44 @@ public class DelegatingHandler extends AbstractVirtualFileHandler
 
    public VirtualFileHandler getChild(String path) throws IOException
    {
-      VirtualFileHandler child = getDelegate().getChild(path);
-      if (getDelegate().equals(child))
+      VirtualFileHandler delegate = resolveDelegate();
+      VirtualFileHandler child = delegate.getChild(path);
+      if (delegate.equals(child))
+         return this;
+      else
+         return child;
+   }
+
+   public VirtualFileHandler getChild(VirtualPath path) throws IOException
+   {
+      VirtualFileHandler delegate = resolveDelegate();
+      VirtualFileHandler child;
+      if (delegate instanceof AbstractVirtualFileHandler)
+         child = ((AbstractVirtualFileHandler) delegate).getChild(path);
+      else
+         child = delegate.getChild(path.getPath());
+      if (delegate.equals(child))
          return this;
       else
          return child;
    }
 
+   @Override
+   public Map<VirtualPath, VirtualFileHandler> getChildren(Collection<VirtualPath> paths) throws IOException
+   {
+      VirtualFileHandler delegate = resolveDelegate();
+      if (delegate instanceof AbstractVirtualFileHandler == false)
+         return super.getChildren(paths);
+
+      Map<VirtualPath, VirtualFileHandler> children = ((AbstractVirtualFileHandler) delegate).getChildren(paths);
+      for (Map.Entry<VirtualPath, VirtualFileHandler> entry : children.entrySet())
+      {
+         if (delegate.equals(entry.getValue()))
+            entry.setValue(this);
+      }
+      return children;
+   }
+
    public boolean removeChild(String path) throws IOException
    {
       throw new IOException("This method should never get called!");
@@ -117,47 +166,71 @@ public class DelegatingHandler extends AbstractVirtualFileHandler
 
    public List<VirtualFileHandler> getChildren(boolean ignoreErrors) throws IOException
    {
-      return getDelegate().getChildren(ignoreErrors);
+      return resolveDelegate().getChildren(ignoreErrors);
    }
 
    public long getLastModified() throws IOException
    {
-      return getDelegate().getLastModified();
+      return resolveDelegate().getLastModified();
    }
 
    public long getSize() throws IOException
    {
-      return getDelegate().getSize();
+      return resolveDelegate().getSize();
    }
 
    public boolean isLeaf() throws IOException
    {
-      return getDelegate().isLeaf();
+      return resolveDelegate().isLeaf();
    }
 
    public boolean exists() throws IOException
    {
-      return getDelegate().exists();
+      return resolveDelegate().exists();
    }
 
    public boolean isHidden() throws IOException
    {
-      return getDelegate().isHidden();
+      return resolveDelegate().isHidden();
+   }
+
+   @Override
+   public VirtualFileAttributes getAttributes() throws IOException
+   {
+      return resolveDelegate().getAttributes();
    }
 
    public boolean isNested() throws IOException
    {
-      return getDelegate().isNested();
+      return resolveDelegate().isNested();
    }
 
    public boolean delete(int gracePeriod) throws IOException
    {
-      return getDelegate().delete(gracePeriod);
+      return resolveDelegate().delete(gracePeriod);
    }
 
    public InputStream openStream() throws IOException
    {
-      return getDelegate().openStream();
+      return resolveDelegate().openStream();
+   }
+
+   @Override
+   public VirtualFileChannel openChannel() throws IOException
+   {
+      return resolveDelegate().openChannel();
+   }
+
+   @Override
+   public byte[] getBytes() throws IOException
+   {
+      return resolveDelegate().getBytes();
+   }
+
+   @Override
+   public ByteBuffer getBuffer() throws IOException
+   {
+      return resolveDelegate().getBuffer();
    }
 
    public URI toURI() throws URISyntaxException
@@ -0,0 +1,297 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual.plugins.context;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.jboss.virtual.VirtualFileChannel;
+import org.jboss.virtual.spi.VirtualFileHandler;
+
+/**
+ * A channel over the streams of a handler.<p>
+ *
+ * Moving forward skips in the open stream, moving back opens a new one.
+ * Skipping a stored zip entry only moves the position in the archive,
+ * a deflated entry is inflated up to the position.
+ * Transfers go through a direct buffer; what a non-blocking target
+ * does not take is kept for the next transfer from that position.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class InputStreamChannel implements VirtualFileChannel
+{
+   /** The largest buffer used for transfers */
+   private static final int TRANSFER_BUFFER_SIZE = 65536;
+
+   /** The handler */
+   private final VirtualFileHandler handler;
+
+   /** The current stream */
+   private InputStream stream;
+
+   /** The current stream as a channel */
+   private ReadableByteChannel streamChannel;
+
+   /** The transfer buffer, its remaining bytes were read from the stream but not written */
+   private ByteBuffer transferBuffer;
+
+   /** The position of the current stream */
+   private long streamPosition;
+
+   /** The position of the next read */
+   private long position;
+
+   /** Whether we are closed */
+   private boolean closed;
+
+   /**
+    * Create a new InputStreamChannel.
+    *
+    * @param handler the handler
+    * @throws IllegalArgumentException for a null handler
+    */
+   public InputStreamChannel(VirtualFileHandler handler)
+   {
+      if (handler == null)
+         throw new IllegalArgumentException("Null handler");
+      this.handler = handler;
+   }
+
+   public synchronized int read(ByteBuffer dst) throws IOException
+   {
+      checkOpen();
+      if (dst.hasRemaining() == false)
+         return 0;
+
+      discardTransferBuffer();
+      InputStream in = seek();
+      if (in == null)
+         return -1;
+
+      int read;
+      if (dst.hasArray())
+      {
+         read = in.read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+         if (read > 0)
+            dst.position(dst.position() + read);
+      }
+      else
+      {
+         byte[] buffer = new byte[Math.min(dst.remaining(), 8192)];
+         read = in.read(buffer);
+         if (read > 0)
+            dst.put(buffer, 0, read);
+      }
+
+      if (read > 0)
+      {
+         position += read;
+         streamPosition = position;
+      }
+      return read;
+   }
+
+   public synchronized long position() throws IOException
+   {
+      checkOpen();
+      return position;
+   }
+
+   public synchronized VirtualFileChannel position(long newPosition) throws IOException
+   {
+      checkOpen();
+      if (newPosition < 0)
+         throw new IllegalArgumentException("Negative position: " + newPosition);
+      position = newPosition;
+      return this;
+   }
+
+   public long size() throws IOException
+   {
+      checkOpen();
+      return handler.getSize();
+   }
+
+   public synchronized long transferTo(long position, long count, WritableByteChannel target) throws IOException
+   {
+      checkOpen();
+      if (position < 0)
+         throw new IllegalArgumentException("Negative position: " + position);
+      if (count < 0)
+         throw new IllegalArgumentException("Negative count: " + count);
+      if (target == null)
+         throw new IllegalArgumentException("Null target");
+
+      ByteBuffer buffer = getTransferBuffer(count);
+      // what the last transfer read ahead only helps when we carry on from there
+      if (buffer.hasRemaining() && position != streamPosition - buffer.remaining())
+         discardTransferBuffer();
+
+      long current = this.position;
+      long transferred = 0;
+      try
+      {
+         while (transferred < count)
+         {
+            if (buffer.hasRemaining() == false)
+            {
+               this.position = position + transferred;
+               if (seek() == null)
+                  break;
+               buffer.clear();
+               int read = streamChannel.read(buffer);
+               buffer.flip();
+               if (read < 0)
+                  break;
+               streamPosition += read;
+            }
+
+            int limit = buffer.limit();
+            if (buffer.remaining() > count - transferred)
+               buffer.limit(buffer.position() + (int) (count - transferred));
+            int written = target.write(buffer);
+            buffer.limit(limit);
+            transferred += written;
+
+            // a non-blocking target is full, the rest stays buffered
+            if (written == 0)
+               break;
+         }
+         return transferred;
+      }
+      finally
+      {
+         this.position = current;
+      }
+   }
+
+   /**
+    * Get the transfer buffer
+    *
+    * @param count the number of bytes to transfer
+    * @return the buffer
+    */
+   private ByteBuffer getTransferBuffer(long count)
+   {
+      int size = (int) Math.max(1, Math.min(count, TRANSFER_BUFFER_SIZE));
+      ByteBuffer buffer = transferBuffer;
+      if (buffer == null || (buffer.capacity() < size && buffer.hasRemaining() == false))
+      {
+         buffer = ByteBuffer.allocateDirect(size);
+         buffer.limit(0);
+         transferBuffer = buffer;
+      }
+      return buffer;
+   }
+
+   /**
+    * Forget what the last transfer read ahead
+    */
+   private void discardTransferBuffer()
+   {
+      if (transferBuffer != null)
+      {
+         transferBuffer.position(0);
+         transferBuffer.limit(0);
+      }
+   }
+
+   public synchronized boolean isOpen()
+   {
+      return closed == false;
+   }
+
+   public synchronized void close() throws IOException
+   {
+      closed = true;
+      closeStream();
+   }
+
+   /**
+    * Get a stream at the position
+    *
+    * @return the stream or null if the position is past the end
+    * @throws IOException for any error
+    */
+   private InputStream seek() throws IOException
+   {
+      if (stream == null || position < streamPosition)
+      {
+         closeStream();
+         stream = handler.openStream();
+         streamChannel = Channels.newChannel(stream);
+         streamPosition = 0;
+      }
+
+      while (streamPosition < position)
+      {
+         long skipped = stream.skip(position - streamPosition);
+         if (skipped <= 0)
+         {
+            // skip may give up early, a read tells us whether we are at the end
+            if (stream.read() < 0)
+               return null;
+            skipped = 1;
+         }
+         streamPosition += skipped;
+      }
+      return stream;
+   }
+
+   /**
+    * Close the current stream
+    *
+    * @throws IOException for any error
+    */
+   private void closeStream() throws IOException
+   {
+      InputStream in = stream;
+      stream = null;
+      streamChannel = null;
+      discardTransferBuffer();
+      if (in != null)
+         in.close();
+   }
+
+   /**
+    * Check we are not closed
+    *
+    * @throws ClosedChannelException if closed
+    */
+   private void checkOpen() throws ClosedChannelException
+   {
+      if (isOpen() == false)
+         throw new ClosedChannelException();
+   }
+
+   @Override
+   public String toString()
+   {
+      return "InputStreamChannel[" + handler + "]";
+   }
+}
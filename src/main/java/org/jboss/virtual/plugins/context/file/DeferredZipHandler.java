@@ -0,0 +1,311 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual.plugins.context.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jboss.virtual.VirtualFileAttributes;
+import org.jboss.virtual.plugins.context.DelegatingHandler;
+import org.jboss.virtual.spi.VirtualFileHandler;
+
+/**
+ * A delegating handler for an archive in the file system
+ * that only mounts the archive once somebody looks inside it.
+ *
+ * Until then the metadata is answered from the archive file itself,
+ * so listing a directory full of jars doesn't set up a context per jar.
+ * A file without a zip end record would be mounted as a plain file,
+ * so it is a leaf before mounting as well.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class DeferredZipHandler extends DelegatingHandler
+{
+   /** Serialization */
+   private static final long serialVersionUID = 1;
+
+   /** The size of the zip end record without a comment */
+   private static final int END_RECORD_SIZE = 22;
+
+   /** The maximum size of a zip comment */
+   private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+   /** The archive file */
+   private final File file;
+
+   /** Has the archive been mounted */
+   private volatile boolean mounted;
+
+   /** Guards mounting, which reads the archive, so not a monitor that would pin virtual threads */
+   private final ReentrantLock mountLock = new ReentrantLock();
+
+   /** The last check whether the file looks like an archive */
+   private transient volatile ArchiveCheck archiveCheck;
+
+   /**
+    * Create a new DeferredZipHandler.
+    *
+    * @param context the file system context
+    * @param parent the parent
+    * @param name the name
+    * @param file the archive file
+    */
+   public DeferredZipHandler(FileSystemContext context, VirtualFileHandler parent, String name, File file)
+   {
+      super(context, parent, name);
+      if (file == null)
+         throw new IllegalArgumentException("Null file");
+      this.file = file;
+   }
+
+   /**
+    * Has the archive been mounted yet
+    *
+    * @return true when mounted
+    */
+   public boolean isMounted()
+   {
+      return mounted;
+   }
+
+   /**
+    * Get the delegate, mounting the archive if needed.
+    *
+    * Callers that can handle an IOException should use {@link #resolveDelegate()}.
+    *
+    * @return the delegate
+    * @throws IllegalStateException when the archive cannot be mounted
+    */
+   @Override
+   public VirtualFileHandler getDelegate()
+   {
+      if (mounted == false)
+      {
+         try
+         {
+            mount();
+         }
+         catch (IOException e)
+         {
+            throw new IllegalStateException("Cannot mount archive: " + file, e);
+         }
+      }
+      return super.getDelegate();
+   }
+
+   @Override
+   protected VirtualFileHandler resolveDelegate() throws IOException
+   {
+      if (mounted == false)
+         mount();
+      return super.getDelegate();
+   }
+
+   /**
+    * Mount the archive.
+    *
+    * @throws IOException when the archive cannot be mounted
+    */
+   private void mount() throws IOException
+   {
+      mountLock.lock();
+      try
+      {
+         if (mounted)
+            return;
+
+         // a file that is not a zip is mounted as a plain file, like isLeaf promised
+         boolean archive = file.isFile() == false || isArchive();
+         VirtualFileHandler handler = ((FileSystemContext) getLocalVFSContext()).mountDeferred(this, getParent(), getName(), file, archive);
+         if (handler == null)
+            throw new IOException("Cannot mount archive, it no longer exists: " + file);
+         setDelegate(handler);
+         mounted = true;
+      }
+      finally
+      {
+         mountLock.unlock();
+      }
+   }
+
+   @Override
+   protected void setVfsUrl(URL vfsUrl)
+   {
+      getDelegate();
+      super.setVfsUrl(vfsUrl);
+   }
+
+   @Override
+   public long getLastModified() throws IOException
+   {
+      if (mounted)
+         return super.getLastModified();
+      return file.lastModified();
+   }
+
+   @Override
+   public long getSize() throws IOException
+   {
+      if (mounted)
+         return super.getSize();
+      return file.length();
+   }
+
+   @Override
+   public boolean exists() throws IOException
+   {
+      if (mounted)
+         return super.exists();
+      return file.exists();
+   }
+
+   @Override
+   public boolean isLeaf() throws IOException
+   {
+      // an archive is a directory to the outside world
+      if (mounted)
+         return super.isLeaf();
+      return file.isFile() && isArchive() == false;
+   }
+
+   @Override
+   public boolean isHidden() throws IOException
+   {
+      if (mounted)
+         return super.isHidden();
+      return false;
+   }
+
+   @Override
+   public VirtualFileAttributes getAttributes() throws IOException
+   {
+      if (mounted)
+         return super.getAttributes();
+      long lastModified = file.lastModified();
+      if (lastModified == 0 && file.exists() == false)
+         return VirtualFileAttributes.MISSING;
+      return new VirtualFileAttributes(true, isLeaf(), false, file.length(), lastModified);
+   }
+
+   /**
+    * Does the file look like an archive, the answer is kept until the file changes.
+    *
+    * @return true when the file has a zip end record
+    * @throws IOException for any error reading the file
+    */
+   private boolean isArchive() throws IOException
+   {
+      long lastModified = file.lastModified();
+      ArchiveCheck check = archiveCheck;
+      if (check == null || check.lastModified != lastModified)
+      {
+         check = new ArchiveCheck(lastModified, hasEndRecord(file));
+         archiveCheck = check;
+      }
+      return check.archive;
+   }
+
+   /**
+    * Look for the zip end record, which is where reading a zip starts.
+    *
+    * @param file the file
+    * @return true when found
+    * @throws IOException for any error reading the file
+    */
+   private static boolean hasEndRecord(File file) throws IOException
+   {
+      RandomAccessFile raf = new RandomAccessFile(file, "r");
+      try
+      {
+         long length = raf.length();
+         if (length < END_RECORD_SIZE)
+            return false;
+
+         // usually there is no comment, so try the smallest tail first
+         int size = END_RECORD_SIZE;
+         while (true)
+         {
+            byte[] tail = new byte[size];
+            raf.seek(length - size);
+            raf.readFully(tail);
+            for (int i = size - END_RECORD_SIZE; i >= 0; i--)
+            {
+               if (tail[i] == 'P' && tail[i + 1] == 'K' && tail[i + 2] == 5 && tail[i + 3] == 6)
+                  return true;
+            }
+
+            int max = (int) Math.min(length, END_RECORD_SIZE + MAX_COMMENT_SIZE);
+            if (size == max)
+               return false;
+            size = max;
+         }
+      }
+      finally
+      {
+         raf.close();
+      }
+   }
+
+   /**
+    * Deferred handlers are only equal to each other, by file system and path,
+    * so neither equals nor hashCode needs the archive mounted.
+    */
+   @Override
+   public int hashCode()
+   {
+      return getPathName().hashCode();
+   }
+
+   @Override
+   public boolean equals(Object o)
+   {
+      if (o == this)
+         return true;
+      if (o instanceof DeferredZipHandler == false)
+         return false;
+
+      DeferredZipHandler other = (DeferredZipHandler) o;
+      return getLocalVFSContext().equals(other.getLocalVFSContext()) && getPathName().equals(other.getPathName());
+   }
+
+   /**
+    * Whether a file looked like an archive at some last modified time.
+    */
+   private static class ArchiveCheck
+   {
+      /** The last modified time of the file when checked */
+      final long lastModified;
+
+      /** Whether it looked like an archive */
+      final boolean archive;
+
+      ArchiveCheck(long lastModified, boolean archive)
+      {
+         this.lastModified = lastModified;
+         this.archive = archive;
+      }
+   }
+}
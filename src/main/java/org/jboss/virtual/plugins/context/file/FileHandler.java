@@ -23,12 +23,17 @@ package org.jboss.virtual.plugins.context.file;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -37,6 +42,9 @@ import java.util.Map;
 
 import org.jboss.util.file.Files;
 import org.jboss.virtual.VFSUtils;
+import org.jboss.virtual.VirtualFileAttributes;
+import org.jboss.virtual.VirtualFileChannel;
+import org.jboss.virtual.VirtualPath;
 import org.jboss.virtual.plugins.context.AbstractURLHandler;
 import org.jboss.virtual.plugins.context.StructuredVirtualFileHandler;
 import org.jboss.virtual.spi.VirtualFileHandler;
@@ -93,11 +101,6 @@ public class FileHandler extends AbstractURLHandler implements StructuredVirtual
       this(context, parent, file, uri.toURL());
    }
 
-   protected void initCacheLastModified()
-   {
-      // ignore that url.openConnection.lastModified
-   }
-
    public URL toVfsUrl() throws MalformedURLException, URISyntaxException
    {
       if (getVfsUrl() == null)
@@ -151,6 +154,91 @@ public class FileHandler extends AbstractURLHandler implements StructuredVirtual
       return getFile().isHidden();
    }
 
+   /**
+    * Read plain files directly, directories are still read through their url.
+    * Streams are never mapped, a mapping would keep the file open after the
+    * stream is closed.
+    *
+    * @return the stream
+    * @throws IOException for any error
+    */
+   @Override
+   public InputStream openStream() throws IOException
+   {
+      File f = getFile();
+      if (f.isFile() == false)
+         return super.openStream();
+
+      return new FileInputStream(f);
+   }
+
+   /**
+    * Get the contents, memory mapped for large files.<p>
+    *
+    * A mapped file stays open until the buffer is garbage collected,
+    * which on some platforms keeps it from being deleted.
+    *
+    * @return the contents
+    * @throws IOException for any error
+    */
+   @Override
+   public ByteBuffer getBuffer() throws IOException
+   {
+      File f = getFile();
+      if (f.isFile() && isMapped(f.length()))
+         return map(f);
+      return super.getBuffer();
+   }
+
+   /**
+    * Whether a file of this size is memory mapped
+    *
+    * @param length the file length
+    * @return true to map it
+    */
+   private static boolean isMapped(long length)
+   {
+      long threshold = FileSystemContext.getMappingThreshold();
+      return threshold > 0 && length >= threshold && length <= Integer.MAX_VALUE;
+   }
+
+   /**
+    * Map a file read only
+    *
+    * @param f the file
+    * @return the buffer
+    * @throws IOException for any error
+    */
+   private static ByteBuffer map(File f) throws IOException
+   {
+      RandomAccessFile raf = new RandomAccessFile(f, "r");
+      try
+      {
+         FileChannel channel = raf.getChannel();
+         return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      finally
+      {
+         raf.close();
+      }
+   }
+
+   @Override
+   public VirtualFileChannel openChannel() throws IOException
+   {
+      return new FileVirtualFileChannel(getFile());
+   }
+
+   @Override
+   public VirtualFileAttributes getAttributes()
+   {
+      File f = getFile();
+      long lastModified = f.lastModified();
+      if (lastModified == 0 && f.exists() == false)
+         return VirtualFileAttributes.MISSING;
+      return new VirtualFileAttributes(true, f.isFile(), f.isHidden(), f.length(), lastModified);
+   }
+
    public boolean isNested() throws IOException
    {
       return false;
@@ -215,39 +303,38 @@ public class FileHandler extends AbstractURLHandler implements StructuredVirtual
       files = tmpFiles.toArray(new File[tmpFiles.size()]);
       FileSystemContext context = getVFSContext();
       
-      List<VirtualFileHandler> result = new ArrayList<VirtualFileHandler>();
-      Map<String, VirtualFileHandler> newCache = Collections.synchronizedMap(new HashMap<String, VirtualFileHandler>());
       Map<String, VirtualFileHandler> oldCache = childCache;
       // fill up a new cache with old entries
       // old entries no longer existing in directory are purged by not being added to new cache
       // we cache handlers so that things like JARs are recreated (optimization)
-      for (File file : files)
+      VirtualFileHandler[] handlers = new VirtualFileHandler[files.length];
+      for (int i = 0; i < files.length; ++i)
       {
+         VirtualFileHandler handler = oldCache.get(files[i].getName());
          try
          {
-            VirtualFileHandler handler;
-            handler = oldCache.get(file.getName());
             // if underlying file has been modified then create a new handler instead of using the cached one
-            if (handler != null && handler.hasBeenModified())
-            {
-               handler = null;
-            }
-            if (handler == null)
-            {
-               handler = context.createVirtualFileHandler(this, file);
-            }
-            if (handler != null)
-            {
-               result.add(handler);
-               newCache.put(file.getName(), handler);
-            }
+            if (handler != null && handler.hasBeenModified() == false)
+               handlers[i] = handler;
          }
          catch (IOException e)
          {
-            if (ignoreErrors)
-               log.trace("Ignored: " + e);
-            else
+            if (ignoreErrors == false)
                throw e;
+            log.trace("Ignored: " + e);
+         }
+      }
+      // the missing ones are created by the context, large listings in parallel
+      context.createVirtualFileHandlers(this, files, handlers, ignoreErrors);
+
+      List<VirtualFileHandler> result = new ArrayList<VirtualFileHandler>(files.length);
+      Map<String, VirtualFileHandler> newCache = Collections.synchronizedMap(new HashMap<String, VirtualFileHandler>());
+      for (int i = 0; i < files.length; ++i)
+      {
+         if (handlers[i] != null)
+         {
+            result.add(handlers[i]);
+            newCache.put(files[i].getName(), handlers[i]);
          }
       }
       // cleanup old entries
@@ -281,6 +368,11 @@ public class FileHandler extends AbstractURLHandler implements StructuredVirtual
       return structuredFindChild(path);
    }
 
+   public VirtualFileHandler getChild(VirtualPath path) throws IOException
+   {
+      return structuredFindChild(path);
+   }
+
    /**
     * Find an existing LinkHandler or create a new one.
     *
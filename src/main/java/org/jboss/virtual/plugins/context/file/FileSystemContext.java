@@ -29,9 +29,21 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.jboss.util.collection.SoftValueHashMap;
 import org.jboss.virtual.VFSUtils;
 import org.jboss.virtual.VirtualFile;
 import org.jboss.virtual.plugins.context.AbstractVFSContext;
@@ -39,6 +51,7 @@ import org.jboss.virtual.plugins.context.DelegatingHandler;
 import org.jboss.virtual.plugins.context.zip.ZipEntryContext;
 import org.jboss.virtual.plugins.context.jar.JarHandler;
 import org.jboss.virtual.plugins.context.jar.JarUtils;
+import org.jboss.virtual.plugins.vfs.helpers.DaemonThreadFactory;
 import org.jboss.virtual.spi.LinkInfo;
 import org.jboss.virtual.spi.VirtualFileHandler;
 import org.jboss.logging.Logger;
@@ -73,6 +86,18 @@ public class FileSystemContext extends AbstractVFSContext
    /** true if case sensitivity should be enforced */
    private static boolean forceCaseSensitive;
 
+   /** Listings creating fewer new handlers than this are done by the caller alone */
+   private static final int PARALLEL_LISTING_THRESHOLD = 16;
+
+   /** The number of threads creating handlers for large listings */
+   private static int listingThreads;
+
+   /** The executor for large listings, created on first use */
+   private static ExecutorService listingExecutor;
+
+   /** Plain files of at least this size are memory mapped */
+   private static long mappingThreshold;
+
    static
    {
       forceVfsJar = AccessController.doPrivileged(new CheckForceVfsJar());
@@ -84,6 +109,9 @@ public class FileSystemContext extends AbstractVFSContext
 
       if (forceCaseSensitive)
          log.debug("VFS forced case sensitivity is enabled.");
+
+      listingThreads = VFSUtils.getIntProperty(VFSUtils.LISTING_THREADS_KEY, Runtime.getRuntime().availableProcessors());
+      mappingThreshold = VFSUtils.getLongProperty(VFSUtils.MAPPING_THRESHOLD_KEY, 1024L * 1024L);
    }
 
    /** The root file */
@@ -91,6 +119,10 @@ public class FileSystemContext extends AbstractVFSContext
    
    /** A reference to the virtual file of the root to stop it getting closed */
    private final VirtualFile rootFile;
+
+   /** The on-disk names per directory, used for case sensitive lookups */
+   @SuppressWarnings("unchecked")
+   private final Map<File, NameIndex> nameIndexes = Collections.<File, NameIndex>synchronizedMap(new SoftValueHashMap());
    
    /**
     * Get the file for a url
@@ -124,16 +156,9 @@ public class FileSystemContext extends AbstractVFSContext
       if (file == null)
          throw new IllegalArgumentException("Null file");
 
+      // toURI() already ends directories with a slash, no need to ask again
       URI url = file.toURI();
       String path = url.getPath();
-      if (file.isDirectory() == false)
-      {
-         path = VFSUtils.fixName(path);
-      }
-      else if (path.endsWith("/") == false)
-      {
-            path = path + '/';
-      }
 
       try
       {
@@ -226,9 +251,10 @@ public class FileSystemContext extends AbstractVFSContext
          throw new IllegalArgumentException("Null file");
       
       String name = file.getName();
-      if (file.isFile() && JarUtils.isArchive(name))
+      if (JarUtils.isArchive(name) && file.isFile())
       {
-         if (exists(file) == false)
+         // isFile() already proved existence, only the case can still be wrong
+         if (isCaseSensitive() && hasExactCase(file) == false)
             return null;
 
          if (forceVfsJar)
@@ -257,6 +283,143 @@ public class FileSystemContext extends AbstractVFSContext
       return createVirtualFileHandler(parent, file, getFileURI(file));
    }
 
+   /**
+    * Create new virtual file handlers for a directory listing.
+    *
+    * Large listings are spread over a worker pool, the calling thread takes part as well
+    * so a listing never waits for a pool thread to become free.
+    *
+    * @param parent the parent
+    * @param files the files
+    * @param handlers existing handlers, aligned with files; null entries are filled in
+    * @param ignoreErrors whether to ignore errors
+    * @throws IOException for any error accessing the file system, unless ignored
+    */
+   void createVirtualFileHandlers(final VirtualFileHandler parent, final File[] files, final VirtualFileHandler[] handlers, final boolean ignoreErrors) throws IOException
+   {
+      final List<Integer> missing = new ArrayList<Integer>();
+      for (int i = 0; i < files.length; ++i)
+      {
+         if (handlers[i] == null)
+            missing.add(i);
+      }
+
+      ExecutorService executor = null;
+      if (missing.size() >= PARALLEL_LISTING_THRESHOLD)
+         executor = getListingExecutor();
+
+      if (executor == null)
+      {
+         for (int i : missing)
+            handlers[i] = createListedHandler(parent, files[i], ignoreErrors);
+         return;
+      }
+
+      final AtomicInteger next = new AtomicInteger();
+      final CountDownLatch done = new CountDownLatch(missing.size());
+      final Throwable[] failure = new Throwable[1];
+      Runnable worker = new Runnable()
+      {
+         public void run()
+         {
+            int index;
+            while ((index = next.getAndIncrement()) < missing.size())
+            {
+               int i = missing.get(index);
+               try
+               {
+                  handlers[i] = createListedHandler(parent, files[i], ignoreErrors);
+               }
+               catch (Throwable t)
+               {
+                  synchronized (failure)
+                  {
+                     if (failure[0] == null)
+                        failure[0] = t;
+                  }
+               }
+               finally
+               {
+                  done.countDown();
+               }
+            }
+         }
+      };
+
+      int helpers = Math.min(listingThreads, missing.size() / PARALLEL_LISTING_THRESHOLD);
+      for (int i = 0; i < helpers; ++i)
+         executor.execute(worker);
+      worker.run();
+
+      try
+      {
+         done.await();
+      }
+      catch (InterruptedException e)
+      {
+         IOException ioe = new IOException("Interrupted: " + e);
+         ioe.initCause(e);
+         throw ioe;
+      }
+
+      Throwable t = failure[0];
+      if (t instanceof IOException)
+         throw (IOException) t;
+      if (t instanceof RuntimeException)
+         throw (RuntimeException) t;
+      if (t instanceof Error)
+         throw (Error) t;
+   }
+
+   /**
+    * Create a handler for a file found in a directory listing.
+    *
+    * @param parent the parent
+    * @param file the file
+    * @param ignoreErrors whether to ignore errors
+    * @return the handler or null
+    * @throws IOException for any error, unless ignored
+    */
+   private VirtualFileHandler createListedHandler(VirtualFileHandler parent, File file, boolean ignoreErrors) throws IOException
+   {
+      try
+      {
+         return createVirtualFileHandler(parent, file);
+      }
+      catch (IOException e)
+      {
+         if (ignoreErrors == false)
+            throw e;
+         log.trace("Ignored: " + e);
+         return null;
+      }
+   }
+
+   /**
+    * Get the size from which the buffers of plain files are memory mapped.
+    *
+    * @return the size or 0 if mapping is turned off
+    */
+   static long getMappingThreshold()
+   {
+      return mappingThreshold;
+   }
+
+   /**
+    * Get the executor used for large listings.
+    *
+    * @return the executor or null if parallel listing is turned off
+    */
+   private static synchronized ExecutorService getListingExecutor()
+   {
+      if (listingThreads <= 0)
+         return null;
+
+      if (listingExecutor == null)
+         listingExecutor = Executors.newFixedThreadPool(listingThreads, new DaemonThreadFactory("VFS Listing"));
+      return listingExecutor;
+   }
+
    /**
     * Create zip file system.
     *
@@ -269,20 +432,43 @@ public class FileSystemContext extends AbstractVFSContext
     */
    protected DelegatingHandler mountZipFS(VirtualFileHandler parent, String name, File file) throws IOException, URISyntaxException
    {
-      DelegatingHandler delegator = new DelegatingHandler(this, parent, name);
-      URL fileUrl = file.toURL();
-      URL delegatorUrl = fileUrl;
-
-      if (parent != null)
-         delegatorUrl = getChildURL(parent, name);
+      // the ZipEntryContext is only created once somebody looks inside
+      return new DeferredZipHandler(this, parent, name, file);
+   }
 
-      delegatorUrl = setOptionsToURL(delegatorUrl);
-      ZipEntryContext ctx = new ZipEntryContext(delegatorUrl, delegator, fileUrl);
+   /**
+    * Mount the archive behind a deferred zip handler.
+    *
+    * @param delegator the deferred handler
+    * @param parent the parent
+    * @param name the name
+    * @param file the file
+    * @param archive false when the file is known not to be an archive
+    * @return the zip root handler, or a plain file handler if the file cannot be handled as an archive
+    * @throws IOException for any error accessing the file system
+    */
+   VirtualFileHandler mountDeferred(DelegatingHandler delegator, VirtualFileHandler parent, String name, File file, boolean archive) throws IOException
+   {
+      if (archive)
+      {
+         try
+         {
+            URL fileUrl = file.toURL();
+            URL delegatorUrl = fileUrl;
 
-      VirtualFileHandler handler = ctx.getRoot();
-      delegator.setDelegate(handler);
+            if (parent != null)
+               delegatorUrl = getChildURL(parent, name);
 
-      return delegator;
+            delegatorUrl = setOptionsToURL(delegatorUrl);
+            ZipEntryContext ctx = new ZipEntryContext(delegatorUrl, delegator, fileUrl);
+            return ctx.getRoot();
+         }
+         catch (Exception e)
+         {
+            log.debug("IGNORING: Exception while trying to handle file (" + name + ") as a jar through ZipEntryContext: ", e);
+         }
+      }
+      return createVirtualFileHandler(parent, file, getFileURI(file));
    }
 
    /**
@@ -308,16 +494,16 @@ public class FileSystemContext extends AbstractVFSContext
       {
          handler = createLinkHandler(parent, file, null);
       }
-      else if (exists(file) == false && parent != null)
+      else if (exists(file))
+      {
+         handler = new FileHandler(this, parent, file, uri);
+      }
+      else if (parent != null)
       {
          // See if we can resolve this to a link in the parent
          if (parent instanceof FileHandler)
             handler = ((FileHandler) parent).getChildLink(file.getName());
       }
-      else if (exists(file))
-      {
-         handler = new FileHandler(this, parent, file, uri);
-      }
       return handler;
    }
 
@@ -380,17 +566,106 @@ public class FileSystemContext extends AbstractVFSContext
    protected boolean exists(File file) throws IOException
    {
       // if force case sensitive is enabled - extra check is required
-      boolean isCaseSensitive = forceCaseSensitive;
-      if (isCaseSensitive == false)
+      if (isCaseSensitive() && hasExactCase(file) == false)
+         return false;
+
+      return file.exists();
+   }
+
+   /**
+    * Is case sensitivity enforced for this context
+    *
+    * @return true if paths have to match case exactly
+    */
+   protected boolean isCaseSensitive()
+   {
+      if (forceCaseSensitive)
+         return true;
+
+      String flag = getOptions().get(VFSUtils.CASE_SENSITIVE_QUERY);
+      return Boolean.valueOf(flag);
+   }
+
+   /**
+    * Does the file name match the name on disk exactly
+    *
+    * @param file file to check
+    * @return true if the case matches
+    * @throws IOException for any error
+    */
+   protected boolean hasExactCase(File file) throws IOException
+   {
+      String name = file.getName();
+      File dir = file.getParentFile();
+      if (dir == null)
+         return file.getCanonicalFile().getName().equals(name);
+
+      // the directory's timestamp tells us whether the listing we have is still good
+      long lastModified = dir.lastModified();
+      NameIndex index = nameIndexes.get(dir);
+      if (index == null || index.lastModified != lastModified)
       {
-         String flag = getOptions().get(VFSUtils.CASE_SENSITIVE_QUERY);
-         isCaseSensitive = Boolean.valueOf(flag);
+         String[] names = dir.list();
+         if (names == null)
+            return file.getCanonicalFile().getName().equals(name);
+
+         index = new NameIndex(lastModified, names);
+         nameIndexes.put(dir, index);
       }
 
-      if (isCaseSensitive && file.getCanonicalFile().getName().equals(file.getName()) == false)
+      if (index.names.contains(name))
+         return true;
+
+      // nothing there, whatever the case
+      if (file.exists() == false)
          return false;
 
-      return file.exists();
+      // either the wrong case or created within the timestamp granularity
+      return file.getCanonicalFile().getName().equals(name);
+   }
+
+   /**
+    * Snapshot plain files straight from the file system,
+    * archives are reported as single files.
+    *
+    * @param root the subtree root
+    * @return map of path name to last modified time
+    * @throws IOException for any error
+    */
+   @Override
+   protected Map<String, Long> getChangeSnapshot(VirtualFileHandler root) throws IOException
+   {
+      if (root instanceof FileHandler == false)
+         return super.getChangeSnapshot(root);
+
+      Map<String, Long> snapshot = new HashMap<String, Long>();
+      addChangeSnapshot(((FileHandler) root).getFile(), root.getPathName(), snapshot);
+      return snapshot;
+   }
+
+   /**
+    * Add a file and its children to a snapshot.
+    *
+    * @param file the file
+    * @param pathName the file's path name
+    * @param snapshot the snapshot
+    */
+   private static void addChangeSnapshot(File file, String pathName, Map<String, Long> snapshot)
+   {
+      long lastModified = file.lastModified();
+      if (lastModified == 0 && file.exists() == false)
+         return;
+
+      snapshot.put(pathName, lastModified);
+      File[] children = file.listFiles();
+      if (children != null)
+      {
+         for (File child : children)
+         {
+            String childPathName = pathName.length() == 0 ? child.getName() : pathName + "/" + child.getName();
+            addChangeSnapshot(child, childPathName, snapshot);
+         }
+      }
    }
 
    /**
@@ -413,6 +688,24 @@ public class FileSystemContext extends AbstractVFSContext
       super.finalize();
    }
 
+   /**
+    * The names found in a directory.
+    */
+   private static class NameIndex
+   {
+      /** The directory's last modified time when listed */
+      private final long lastModified;
+
+      /** The names */
+      private final Set<String> names;
+
+      private NameIndex(long lastModified, String[] names)
+      {
+         this.lastModified = lastModified;
+         this.names = new HashSet<String>(Arrays.asList(names));
+      }
+   }
+
    private static class CheckForceVfsJar implements PrivilegedAction<Boolean>
    {
       public Boolean run()
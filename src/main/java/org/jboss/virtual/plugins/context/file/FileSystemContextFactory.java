@@ -27,7 +27,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 
+import org.jboss.virtual.VFSUtils;
 import org.jboss.virtual.plugins.context.AbstractContextFactory;
+import org.jboss.virtual.plugins.context.ContextRegistry;
 import org.jboss.virtual.spi.VFSContext;
 
 /**
@@ -48,7 +50,7 @@ public class FileSystemContextFactory extends AbstractContextFactory
    {
       try
       {
-         return new FileSystemContext(fromVFS(root));
+         return getVFS(VFSUtils.toURI(fromVFS(root)));
       }
       catch(URISyntaxException e)
       {
@@ -62,7 +64,23 @@ public class FileSystemContextFactory extends AbstractContextFactory
    {
       try
       {
-         return new FileSystemContext(fromVFS(root));
+         final URI uri = fromVFS(root);
+         return getContextRegistry().getContext(uri, new ContextRegistry.ContextCreator()
+         {
+            public VFSContext createContext() throws IOException
+            {
+               try
+               {
+                  return new FileSystemContext(uri);
+               }
+               catch (URISyntaxException e)
+               {
+                  MalformedURLException ex = new MalformedURLException("non-URI compliant URI");
+                  ex.initCause(e);
+                  throw ex;
+               }
+            }
+         });
       }
       catch(URISyntaxException e)
       {
@@ -0,0 +1,97 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual.plugins.context.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.jboss.virtual.VirtualFileChannel;
+
+/**
+ * A channel reading a plain file through its FileChannel.
+ *
+ * @version $Revision: 1.1 $
+ */
+class FileVirtualFileChannel implements VirtualFileChannel
+{
+   /** The file */
+   private final RandomAccessFile file;
+
+   /** The channel */
+   private final FileChannel channel;
+
+   /**
+    * Create a new FileVirtualFileChannel.
+    *
+    * @param file the file
+    * @throws IOException for any error opening the file
+    */
+   FileVirtualFileChannel(File file) throws IOException
+   {
+      this.file = new RandomAccessFile(file, "r");
+      this.channel = this.file.getChannel();
+   }
+
+   public int read(ByteBuffer dst) throws IOException
+   {
+      return channel.read(dst);
+   }
+
+   public long position() throws IOException
+   {
+      return channel.position();
+   }
+
+   public VirtualFileChannel position(long newPosition) throws IOException
+   {
+      if (newPosition < 0)
+         throw new IllegalArgumentException("Negative position: " + newPosition);
+      channel.position(newPosition);
+      return this;
+   }
+
+   public long size() throws IOException
+   {
+      return channel.size();
+   }
+
+   public long transferTo(long position, long count, WritableByteChannel target) throws IOException
+   {
+      if (target == null)
+         throw new IllegalArgumentException("Null target");
+      return channel.transferTo(position, count, target);
+   }
+
+   public boolean isOpen()
+   {
+      return channel.isOpen();
+   }
+
+   public void close() throws IOException
+   {
+      file.close();
+   }
+}
@@ -32,6 +32,8 @@ import java.util.HashMap;
 import java.util.List;
 
 import org.jboss.virtual.VFSUtils;
+import org.jboss.virtual.VirtualFileAttributes;
+import org.jboss.virtual.VirtualPath;
 import org.jboss.virtual.plugins.context.AbstractURLHandler;
 import org.jboss.virtual.plugins.context.DelegatingHandler;
 import org.jboss.virtual.plugins.context.StructuredVirtualFileHandler;
@@ -90,6 +92,11 @@ public class LinkHandler extends AbstractURLHandler implements StructuredVirtual
          return structuredFindChild(path);
       }
 
+      public VirtualFileHandler getChild(VirtualPath path) throws IOException
+      {
+         return structuredFindChild(path);
+      }
+
       public boolean removeChild(String name) throws IOException
       {
          return children.remove(name) != null;
@@ -208,6 +215,12 @@ public class LinkHandler extends AbstractURLHandler implements StructuredVirtual
       return false;
    }
 
+   @Override
+   public VirtualFileAttributes getAttributes() throws IOException
+   {
+      return getConnectionAttributes();
+   }
+
    public boolean isNested() throws IOException
    {
       return false;
@@ -37,6 +37,7 @@ import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
 import org.jboss.virtual.VFSUtils;
+import org.jboss.virtual.VirtualPath;
 import org.jboss.virtual.plugins.context.HierarchyVirtualFileHandler;
 import org.jboss.virtual.plugins.context.StructuredVirtualFileHandler;
 import org.jboss.virtual.plugins.vfs.helpers.PathTokenizer;
@@ -272,6 +273,11 @@ public abstract class AbstractStructuredJarHandler<T> extends AbstractJarHandler
       return structuredFindChild(path);
    }
 
+   public VirtualFileHandler getChild(VirtualPath path) throws IOException
+   {
+      return structuredFindChild(path);
+   }
+
    /**
     * Create a new virtual file handler
     *
@@ -32,6 +32,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -58,6 +59,8 @@ public class JarEntryContents extends AbstractJarHandler implements StructuredVi
    private boolean isJar;
    private NestedJarFromStream njar;
    private InputStream openStream;
+   /** Guards the nested jar and the open stream, not a monitor as reading them would pin virtual threads */
+   private final ReentrantLock streamLock = new ReentrantLock();
 
    private List<VirtualFileHandler> entryChildren;
    private transient Map<String, VirtualFileHandler> entryMap;
@@ -80,10 +83,6 @@ public class JarEntryContents extends AbstractJarHandler implements StructuredVi
       this.contents = contents;
    }
 
-   protected void initCacheLastModified()
-   {
-   }
-
    /**
     * Add a child to an entry
     *
@@ -222,29 +221,45 @@ public class JarEntryContents extends AbstractJarHandler implements StructuredVi
    }
 
    // Stream accessor
-   public synchronized InputStream openStream() throws IOException
+   public InputStream openStream() throws IOException
    {
-      initNestedJar();
-      if (njar != null)
-         openStream = njar.openStream();
-      else
-         openStream = new ByteArrayInputStream(contents);
-      return openStream;
+      streamLock.lock();
+      try
+      {
+         initNestedJar();
+         if (njar != null)
+            openStream = njar.openStream();
+         else
+            openStream = new ByteArrayInputStream(contents);
+         return openStream;
+      }
+      finally
+      {
+         streamLock.unlock();
+      }
    }
 
-   public synchronized void close()
+   public void close()
    {
-      if (openStream != null)
+      streamLock.lock();
+      try
       {
-         try
-         {
-            openStream.close();
-         }
-         catch (IOException e)
+         if (openStream != null)
          {
-            log.error("close error", e);
+            try
+            {
+               openStream.close();
+            }
+            catch (IOException e)
+            {
+               log.error("close error", e);
+            }
+            openStream = null;
          }
-         openStream = null;
+      }
+      finally
+      {
+         streamLock.unlock();
       }
    }
 
@@ -289,13 +304,21 @@ public class JarEntryContents extends AbstractJarHandler implements StructuredVi
       return tmp.toString();
    }
 
-   protected synchronized void initNestedJar() throws IOException
+   protected void initNestedJar() throws IOException
    {
-      if (isJar && njar == null)
+      streamLock.lock();
+      try
+      {
+         if (isJar && njar == null)
+         {
+            ByteArrayInputStream bais = new ByteArrayInputStream(contents);
+            ZipInputStream zis = new ZipInputStream(bais);
+            njar = new NestedJarFromStream(getVFSContext(), getParent(), zis, entryURL, null, getEntry(), getName());
+         }
+      }
+      finally
       {
-         ByteArrayInputStream bais = new ByteArrayInputStream(contents);
-         ZipInputStream zis = new ZipInputStream(bais);
-         njar = new NestedJarFromStream(getVFSContext(), getParent(), zis, entryURL, null, getEntry(), getName());
+         streamLock.unlock();
       }
    }
 }
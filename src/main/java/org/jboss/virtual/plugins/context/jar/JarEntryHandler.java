@@ -33,6 +33,7 @@ import java.util.Map;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
+import org.jboss.virtual.VirtualPath;
 import org.jboss.virtual.plugins.context.HierarchyVirtualFileHandler;
 import org.jboss.virtual.plugins.context.StructuredVirtualFileHandler;
 import org.jboss.virtual.spi.VFSContext;
@@ -83,12 +84,6 @@ public class JarEntryHandler extends AbstractJarHandler implements StructuredVir
       }
    }
 
-   @Override
-   protected void initCacheLastModified()
-   {
-      // complete
-   }
-
    @Override
    public boolean hasBeenModified() throws IOException
    {
@@ -171,6 +166,11 @@ public class JarEntryHandler extends AbstractJarHandler implements StructuredVir
       return structuredFindChild(path);
    }
 
+   public VirtualFileHandler getChild(VirtualPath path) throws IOException
+   {
+      return structuredFindChild(path);
+   }
+
    public boolean removeChild(String path) throws IOException
    {
       return false;
@@ -27,6 +27,7 @@ import java.net.JarURLConnection;
 import java.net.URL;
 import java.util.jar.JarFile;
 
+import org.jboss.virtual.VirtualFileAttributes;
 import org.jboss.virtual.spi.VFSContext;
 import org.jboss.virtual.spi.VirtualFileHandler;
 
@@ -103,4 +104,10 @@ public class JarHandler extends AbstractStructuredJarHandler<Object>
    {
       return false;
    }
+
+   @Override
+   public VirtualFileAttributes getAttributes() throws IOException
+   {
+      return getConnectionAttributes();
+   }
 }
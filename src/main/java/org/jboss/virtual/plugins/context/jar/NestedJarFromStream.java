@@ -72,6 +72,7 @@ public class NestedJarFromStream extends AbstractStructuredJarHandler<byte[]>
       super(context, parent, jarURL, jar, entry, entryName);
       this.jarURL = jarURL;
       this.lastModified = entry.getTime();
+      this.cachedLastModified = lastModified;
       this.size = entry.getSize();
       this.zis = zis;
       try
@@ -85,11 +86,6 @@ public class NestedJarFromStream extends AbstractStructuredJarHandler<byte[]>
       }
    }
 
-   protected void initCacheLastModified()
-   {
-      cachedLastModified = lastModified;
-   }
-
    /**
     * Initialize entries.
     *
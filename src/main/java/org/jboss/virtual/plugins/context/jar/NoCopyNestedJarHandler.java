@@ -97,10 +97,6 @@ public class NoCopyNestedJarHandler extends AbstractJarHandler
       }
    }
    
-   protected void initCacheLastModified()
-   {
-   }
-
    @Override
    public long getLastModified() throws IOException
    {
@@ -31,6 +31,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.jboss.virtual.VirtualPath;
 import org.jboss.virtual.plugins.context.AbstractURLHandler;
 import org.jboss.virtual.plugins.context.HierarchyVirtualFileHandler;
 import org.jboss.virtual.plugins.context.StructuredVirtualFileHandler;
@@ -86,10 +87,6 @@ public class SynthenticDirEntryHandler extends AbstractURLHandler
       this.cachedLastModified = lastModified;
    }
 
-   protected void initCacheLastModified()
-   {
-   }
-
    /**
     * Add a child to an entry
     *
@@ -190,6 +187,11 @@ public class SynthenticDirEntryHandler extends AbstractURLHandler
       return structuredFindChild(path);
    }
 
+   public VirtualFileHandler getChild(VirtualPath path) throws IOException
+   {
+      return structuredFindChild(path);
+   }
+
    public boolean removeChild(String name) throws IOException
    {
       return false;
@@ -27,12 +27,14 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.jboss.virtual.VirtualPath;
 import org.jboss.virtual.plugins.context.AbstractURLHandler;
 import org.jboss.virtual.plugins.context.StructuredVirtualFileHandler;
 import org.jboss.virtual.spi.VFSContext;
@@ -57,6 +59,7 @@ public class MemoryContextHandler extends AbstractURLHandler implements Structur
    public MemoryContextHandler(VFSContext context, VirtualFileHandler parent, URL url, String name)
    {
       super(context, parent, url, name);
+      this.cachedLastModified = System.currentTimeMillis();
       if (parent != null && parent instanceof MemoryContextHandler)
       {
          ((MemoryContextHandler)parent).addChild(name, this);
@@ -102,7 +105,19 @@ public class MemoryContextHandler extends AbstractURLHandler implements Structur
 
    public VirtualFileHandler getChild(String path) throws IOException
    {
-      return structuredFindChild(path);
+      return getChild(new VirtualPath(path));
+   }
+
+   public VirtualFileHandler getChild(VirtualPath path) throws IOException
+   {
+      if (path.hasSpecialTokens())
+         return structuredFindChild(path);
+
+      // the whole tree is in memory, walk the entry maps directly
+      MemoryContextHandler current = this;
+      for (int i = 0; i < path.size() && current != null; ++i)
+         current = current.entryMap.get(path.getToken(i));
+      return current;
    }
 
    public boolean removeChild(String name) throws IOException
@@ -127,14 +142,8 @@ public class MemoryContextHandler extends AbstractURLHandler implements Structur
       {
          throw new RuntimeException("Cannot set contents for non-leaf node");
       }
-      initCacheLastModified();
-      this.contents = contents;
-   }
-   
-   @Override
-   protected void initCacheLastModified()
-   {
       this.cachedLastModified = System.currentTimeMillis();
+      this.contents = contents;
    }
 
    @Override
@@ -168,6 +177,22 @@ public class MemoryContextHandler extends AbstractURLHandler implements Structur
       return new ByteArrayInputStream(new byte[0]);
    }
 
+   @Override
+   public byte[] getBytes() throws IOException
+   {
+      if (contents != null)
+         return contents.clone();
+      return new byte[0];
+   }
+
+   @Override
+   public ByteBuffer getBuffer() throws IOException
+   {
+      if (contents != null)
+         return ByteBuffer.wrap(contents).asReadOnlyBuffer();
+      return ByteBuffer.allocate(0).asReadOnlyBuffer();
+   }
+
    @Override
    public URL toVfsUrl() throws MalformedURLException, URISyntaxException
    {
@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.jboss.virtual.AssembledDirectory;
+import org.jboss.virtual.VirtualPath;
 import org.jboss.virtual.plugins.context.AbstractVirtualFileHandler;
 import org.jboss.virtual.plugins.context.StructuredVirtualFileHandler;
 import org.jboss.virtual.spi.VFSContext;
@@ -115,6 +116,11 @@ public class AssembledDirectoryHandler extends AbstractVirtualFileHandler implem
       return structuredFindChild(path);
    }
 
+   public VirtualFileHandler getChild(VirtualPath path) throws IOException
+   {
+      return structuredFindChild(path);
+   }
+
    public URI toURI() throws URISyntaxException
    {
       return getVfsUrl().toURI();
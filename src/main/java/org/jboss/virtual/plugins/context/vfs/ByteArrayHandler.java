@@ -28,6 +28,7 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.jboss.virtual.plugins.context.AbstractVirtualFileHandler;
@@ -106,6 +107,18 @@ public class ByteArrayHandler extends AbstractVirtualFileHandler
       return new ByteArrayInputStream(bytes);
    }
 
+   @Override
+   public byte[] getBytes() throws IOException
+   {
+      return bytes.clone();
+   }
+
+   @Override
+   public ByteBuffer getBuffer() throws IOException
+   {
+      return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+   }
+
    public List<VirtualFileHandler> getChildren(boolean ignoreErrors) throws IOException
    {
       throw new IOException("File cannot have children");
@@ -36,21 +36,26 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import org.jboss.logging.Logger;
 import org.jboss.virtual.VFSUtils;
+import org.jboss.virtual.VirtualFileAttributes;
+import org.jboss.virtual.VirtualPath;
 import org.jboss.virtual.plugins.context.AbstractVFSContext;
 import org.jboss.virtual.plugins.context.AbstractVirtualFileHandler;
 import org.jboss.virtual.plugins.context.DelegatingHandler;
@@ -121,6 +126,9 @@ public class ZipEntryContext extends AbstractVFSContext
    /** Have zip entries been navigated yet */
    private InitializationStatus initStatus = InitializationStatus.NOT_INITIALIZED;
 
+   /** Guards reading the entries, which does i/o, so not a monitor that would pin virtual threads */
+   private final ReentrantLock entriesLock = new ReentrantLock();
+
    /**
     * Create a new ZipEntryContext
     *
@@ -378,12 +386,13 @@ public class ZipEntryContext extends AbstractVFSContext
    }
 
    /**
-    * Iterate through zip archive entries, compose a tree structure of archive's content
+    * Iterate through zip archive entries, compose a tree structure of archive's content.
+    * The caller holds the entries lock.
     *
     * @throws URISyntaxException for any URI error
     * @throws java.io.IOException for any error
     */
-   private synchronized void initEntries() throws IOException, URISyntaxException
+   private void initEntries() throws IOException, URISyntaxException
    {
       // we're using a two phase approach - we first select the relevant ones
       // then we order these by name and only then we process them
@@ -475,13 +484,14 @@ public class ZipEntryContext extends AbstractVFSContext
    /**
     * Perform initialization only if it hasn't been done yet
     */
-   private synchronized void ensureEntries()
+   private void ensureEntries()
    {
-      if (initStatus != InitializationStatus.NOT_INITIALIZED)
-         return;
-
+      entriesLock.lock();
       try
       {
+         if (initStatus != InitializationStatus.NOT_INITIALIZED)
+            return;
+
          initStatus = InitializationStatus.INITIALIZING;
          initEntries();
          initStatus = InitializationStatus.INITIALIZED;
@@ -494,6 +504,7 @@ public class ZipEntryContext extends AbstractVFSContext
       {
          if (initStatus == InitializationStatus.INITIALIZING)
             initStatus = InitializationStatus.NOT_INITIALIZED;
+         entriesLock.unlock();
       }
    }
 
@@ -611,31 +622,39 @@ public class ZipEntryContext extends AbstractVFSContext
     * If archive has been modified, clear <em>entries</em> and re-initialize.
     * If not initialized yet, initialize it.
     */
-   private synchronized void checkIfModified()
+   private void checkIfModified()
    {
-      // TODO: if zipSource represents a nested archive we should maybe delegate lastModified to its parent
-      if (initStatus == InitializationStatus.NOT_INITIALIZED)
-      {
-         ensureEntries();
-      }
-      else if (initStatus == InitializationStatus.INITIALIZED && zipSource.hasBeenModified())
+      entriesLock.lock();
+      try
       {
-         EntryInfo rootInfo = entries.get("");
-         entries = new ConcurrentHashMap<String, EntryInfo>();
-         entries.put("", rootInfo);
-
-         if (zipSource.exists())
+         // TODO: if zipSource represents a nested archive we should maybe delegate lastModified to its parent
+         if (initStatus == InitializationStatus.NOT_INITIALIZED)
          {
-            try
-            {
-               initEntries();
-            }
-            catch(Exception ignored)
+            ensureEntries();
+         }
+         else if (initStatus == InitializationStatus.INITIALIZED && zipSource.hasBeenModified())
+         {
+            EntryInfo rootInfo = entries.get("");
+            entries = new ConcurrentHashMap<String, EntryInfo>();
+            entries.put("", rootInfo);
+
+            if (zipSource.exists())
             {
-               log.warn("IGNORING: Failed to reinitialize context: " + getRootURI(), ignored);
+               try
+               {
+                  initEntries();
+               }
+               catch(Exception ignored)
+               {
+                  log.warn("IGNORING: Failed to reinitialize context: " + getRootURI(), ignored);
+               }
             }
          }
       }
+      finally
+      {
+         entriesLock.unlock();
+      }
    }
 
    /**
@@ -675,6 +694,119 @@ public class ZipEntryContext extends AbstractVFSContext
       return null;
    }
 
+   /**
+    * Find a descendant with one lookup in the entries index
+    *
+    * @param parent parent handler
+    * @param path the path below the parent
+    * @return the handler or null if the path is not a plain entry of this context
+    */
+   VirtualFileHandler getIndexedChild(ZipEntryHandler parent, VirtualPath path)
+   {
+      if (parent == null)
+         throw new IllegalArgumentException("Null parent");
+      if (path == null)
+         throw new IllegalArgumentException("Null path");
+
+      // . and .. have to be walked, as do paths into nested archives, which miss here
+      if (path.isEmpty() || path.hasSpecialTokens())
+         return null;
+
+      checkIfModified();
+      return lookupIndexedChild(parent, path);
+   }
+
+   /**
+    * Look up the handlers for several paths below a parent,
+    * checking the archive for modification only once
+    *
+    * @param parent parent handler
+    * @param paths the paths below the parent
+    * @return the handlers found in the index by path in the order of the paths,
+    *         paths that are not plain entries of this context are left out
+    */
+   Map<VirtualPath, VirtualFileHandler> getIndexedChildren(ZipEntryHandler parent, Collection<VirtualPath> paths)
+   {
+      if (parent == null)
+         throw new IllegalArgumentException("Null parent");
+      if (paths == null)
+         throw new IllegalArgumentException("Null paths");
+
+      checkIfModified();
+
+      Map<VirtualPath, VirtualFileHandler> result = new LinkedHashMap<VirtualPath, VirtualFileHandler>();
+      for (VirtualPath path : paths)
+      {
+         if (path == null)
+            throw new IllegalArgumentException("Null path");
+         if (path.isEmpty() || path.hasSpecialTokens())
+            continue;
+
+         VirtualFileHandler child = lookupIndexedChild(parent, path);
+         if (child != null)
+            result.put(path, child);
+      }
+      return result;
+   }
+
+   /**
+    * Can a path below a parent only be found by walking it, because it has
+    * . or .. tokens or passes through a nested archive or other mounted handler.
+    * Any other path is either in the index or does not exist.
+    *
+    * @param parent parent handler
+    * @param path the path below the parent
+    * @return true if the index lookup is not the final answer
+    */
+   boolean isWalkNeeded(ZipEntryHandler parent, VirtualPath path)
+   {
+      if (parent == null)
+         throw new IllegalArgumentException("Null parent");
+      if (path == null)
+         throw new IllegalArgumentException("Null path");
+
+      if (path.isEmpty() || path.hasSpecialTokens())
+         return true;
+
+      StringBuilder pathName = new StringBuilder(parent.getLocalPathName());
+      for (int i = 0; i < path.size() - 1; i++)
+      {
+         if (pathName.length() > 0)
+            pathName.append('/');
+         pathName.append(path.getToken(i));
+
+         EntryInfo ei = entries.get(pathName.toString());
+         // no such directory, so nothing below it either
+         if (ei == null)
+            return false;
+         if (ei.handler instanceof DelegatingHandler)
+            return true;
+      }
+      return false;
+   }
+
+   /**
+    * Look a plain path up in the entries
+    *
+    * @param parent parent handler
+    * @param path the path below the parent
+    * @return the handler or null if it is not an entry
+    */
+   private VirtualFileHandler lookupIndexedChild(ZipEntryHandler parent, VirtualPath path)
+   {
+      String pathName = parent.getLocalPathName();
+      if (pathName.length() == 0)
+         pathName = path.getSimplePath();
+      else
+         pathName = pathName + "/" + path.getSimplePath();
+
+      EntryInfo ei = entries.get(pathName);
+      if (ei != null)
+         return ei.handler;
+
+      return null;
+   }
+
    /**
     * Returns a list of children for a given parent
     *
@@ -704,6 +836,42 @@ public class ZipEntryContext extends AbstractVFSContext
       return Collections.emptyList();
    }
 
+   /**
+    * Snapshot the entries under a handler, re-indexing the archive if it has been modified.
+    *
+    * @param root the subtree root
+    * @return map of path name to last modified time
+    * @throws IOException for any error
+    */
+   @Override
+   protected Map<String, Long> getChangeSnapshot(VirtualFileHandler root) throws IOException
+   {
+      Map<String, Long> snapshot = new HashMap<String, Long>();
+      checkIfModified();
+      if (zipSource.exists() == false)
+         return snapshot;
+
+      String rootPath = root.getLocalPathName();
+      for (Map.Entry<String, EntryInfo> entry : entries.entrySet())
+      {
+         String path = entry.getKey();
+         if (rootPath.length() == 0 || path.equals(rootPath) || path.startsWith(rootPath + "/"))
+         {
+            EntryInfo ei = entry.getValue();
+            long lastModified;
+            if (ei.entry != null)
+               lastModified = ei.entry.getTime();
+            else if (path.length() == 0)
+               lastModified = zipSource.getLastModified();
+            else
+               lastModified = 0;
+
+            snapshot.put(ei.handler.getPathName(), lastModified);
+         }
+      }
+      return snapshot;
+   }
+
    public boolean delete(ZipEntryHandler handler, int gracePeriod) throws IOException
    {
       if (getRoot().equals(handler))
@@ -779,6 +947,39 @@ public class ZipEntryContext extends AbstractVFSContext
       return ei != null;
    }
 
+   /**
+    * Returns the attributes for a given handler with a single entry lookup
+    *
+    * @param handler a handler
+    * @return the attributes
+    */
+   public VirtualFileAttributes getAttributes(ZipEntryHandler handler)
+   {
+      if (handler == null)
+         throw new IllegalArgumentException("Null handler");
+
+      boolean isRoot = getRoot().equals(handler);
+      if (isRoot == false)
+         checkIfModified();
+
+      EntryInfo ei = entries.get(handler.getLocalPathName());
+      if (isRoot)
+      {
+         if (zipSource.exists() == false)
+            return VirtualFileAttributes.MISSING;
+      }
+      else if (ei == null)
+      {
+         return VirtualFileAttributes.MISSING;
+      }
+
+      ZipEntry entry = ei != null ? ei.entry : null;
+      boolean leaf = entry != null && entry.isDirectory() == false;
+      long lastModified = ei == null ? 0 : (entry == null ? zipSource.getLastModified() : entry.getTime());
+      long size = isRoot ? zipSource.getSize() : (entry == null ? 0 : entry.getSize());
+      return new VirtualFileAttributes(true, leaf, false, size, lastModified);
+   }
+
    /**
     * Returns true if handler represents a non-directory entry
     *
@@ -875,10 +1076,47 @@ public class ZipEntryContext extends AbstractVFSContext
       if (getRoot().equals(handler))
          return zipSource.getRootAsStream();
 
+      EntryInfo ei = getEntryInfo(handler);
+      if(ei.entry == null)
+         return new ByteArrayInputStream(new byte[0]);
+
+      return zipSource.openStream(ei.entry);
+   }
+
+   /**
+    * Read the contents of a handler, sized by the zip entry
+    *
+    * @param handler a handler
+    * @return the contents
+    * @throws IOException for any error
+    */
+   public byte[] getBytes(ZipEntryHandler handler) throws IOException
+   {
+      if (handler == null)
+         throw new IllegalArgumentException("Null handler");
+
+      if (getRoot().equals(handler))
+         return VFSUtils.readBytesAndClose(zipSource.getRootAsStream(), zipSource.getSize());
+
+      EntryInfo ei = getEntryInfo(handler);
+      if(ei.entry == null)
+         return new byte[0];
+
+      return VFSUtils.readBytesAndClose(zipSource.openStream(ei.entry), ei.entry.getSize());
+   }
+
+   /**
+    * Get the entry of a handler, re-indexing the archive if it has been modified
+    *
+    * @param handler a handler
+    * @return the entry info
+    * @throws FileNotFoundException if there is no entry for the handler
+    */
+   private EntryInfo getEntryInfo(ZipEntryHandler handler) throws FileNotFoundException
+   {
       checkIfModified();
 
       EntryInfo ei = entries.get(handler.getLocalPathName());
-
       if (ei == null)
       {
          String uriStr;
@@ -892,11 +1130,7 @@ public class ZipEntryContext extends AbstractVFSContext
          }
          throw new FileNotFoundException(uriStr);
       }
-
-      if(ei.entry == null)
-         return new ByteArrayInputStream(new byte[0]);
-
-      return zipSource.openStream(ei.entry);
+      return ei;
    }
 
    /**
@@ -961,7 +1195,8 @@ public class ZipEntryContext extends AbstractVFSContext
             newOne = new DelegatingHandler(this, parent, original.getName(), replacement);
          }
 
-         synchronized(this)
+         entriesLock.lock();
+         try
          {
             parentEntry.replaceChild(original, newOne);
 
@@ -970,6 +1205,10 @@ public class ZipEntryContext extends AbstractVFSContext
             ei.entry = null;
             ei.clearChildren();
          }
+         finally
+         {
+            entriesLock.unlock();
+         }
       }
       else
       {
@@ -1013,7 +1252,7 @@ public class ZipEntryContext extends AbstractVFSContext
          if (children == null)
             return Collections.emptyList();
 
-         return new LinkedList<VirtualFileHandler>(children);
+         return new ArrayList<VirtualFileHandler>(children);
       }
 
       /**
@@ -1057,7 +1296,7 @@ public class ZipEntryContext extends AbstractVFSContext
       {
          if (children == null)
          {
-            children = new LinkedList<AbstractVirtualFileHandler>();
+            children = new ArrayList<AbstractVirtualFileHandler>();
          }
          else
          {
@@ -27,7 +27,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 
+import org.jboss.virtual.VFSUtils;
 import org.jboss.virtual.plugins.context.AbstractContextFactory;
+import org.jboss.virtual.plugins.context.ContextRegistry;
 import org.jboss.virtual.spi.VFSContext;
 
 /**
@@ -58,17 +60,32 @@ public class ZipEntryContextFactory extends AbstractContextFactory
    }
 
    /**
-    * Create a new <tt>ZipEntryContext</tt>.
+    * Get the <tt>ZipEntryContext</tt> for a root, reusing a live one if there is one.
     *
     * @param rootURL the root url
-    * @return new zip context
+    * @return the zip context
     * @throws IOException for any error
     */
-   public VFSContext getVFS(URL rootURL) throws IOException
+   public VFSContext getVFS(final URL rootURL) throws IOException
    {
       try
       {
-         return new ZipEntryContext(rootURL);
+         return getContextRegistry().getContext(VFSUtils.toURI(rootURL), new ContextRegistry.ContextCreator()
+         {
+            public VFSContext createContext() throws IOException
+            {
+               try
+               {
+                  return new ZipEntryContext(rootURL);
+               }
+               catch(URISyntaxException ex)
+               {
+                  MalformedURLException e = new MalformedURLException("Failed to convert URL to URI: " + rootURL);
+                  e.initCause(ex);
+                  throw e;
+               }
+            }
+         });
       }
       catch(URISyntaxException ex)
       {
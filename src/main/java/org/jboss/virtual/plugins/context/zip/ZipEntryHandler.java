@@ -27,9 +27,14 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.jboss.virtual.VFSUtils;
+import org.jboss.virtual.VirtualFileAttributes;
+import org.jboss.virtual.VirtualPath;
 import org.jboss.virtual.plugins.context.AbstractVirtualFileHandler;
 import org.jboss.virtual.plugins.context.StructuredVirtualFileHandler;
 import org.jboss.virtual.spi.VirtualFileHandler;
@@ -131,6 +136,13 @@ public class ZipEntryHandler extends AbstractVirtualFileHandler implements Struc
       return false;
    }
 
+   @Override
+   public VirtualFileAttributes getAttributes() throws IOException
+   {
+      checkClosed();
+      return getZipEntryContext().getAttributes(this);
+   }
+
    public boolean isNested() throws IOException
    {
       return ZipEntryContext.isNested(this);
@@ -142,6 +154,13 @@ public class ZipEntryHandler extends AbstractVirtualFileHandler implements Struc
       return getZipEntryContext().openStream(this);
    }
 
+   @Override
+   public byte[] getBytes() throws IOException
+   {
+      checkClosed();
+      return getZipEntryContext().getBytes(this);
+   }
+
    public List<VirtualFileHandler> getChildren(boolean ignoreErrors) throws IOException
    {
       checkClosed();
@@ -151,9 +170,42 @@ public class ZipEntryHandler extends AbstractVirtualFileHandler implements Struc
    public VirtualFileHandler getChild(String path) throws IOException
    {
       checkClosed();
+      return getChild(new VirtualPath(path));
+   }
+
+   public VirtualFileHandler getChild(VirtualPath path) throws IOException
+   {
+      checkClosed();
+      // a plain path to an entry of this archive is a single index lookup
+      ZipEntryContext context = getZipEntryContext();
+      VirtualFileHandler child = context.getIndexedChild(this, path);
+      if (child != null || context.isWalkNeeded(this, path) == false)
+         return child;
       return structuredFindChild(path);
    }
 
+   @Override
+   public Map<VirtualPath, VirtualFileHandler> getChildren(Collection<VirtualPath> paths) throws IOException
+   {
+      checkClosed();
+      // plain paths to entries of this archive come straight from the index
+      ZipEntryContext context = getZipEntryContext();
+      Map<VirtualPath, VirtualFileHandler> indexed = context.getIndexedChildren(this, paths);
+      if (indexed.size() == paths.size())
+         return indexed;
+
+      Map<VirtualPath, VirtualFileHandler> result = new LinkedHashMap<VirtualPath, VirtualFileHandler>();
+      for (VirtualPath path : paths)
+      {
+         VirtualFileHandler child = indexed.get(path);
+         if (child == null && context.isWalkNeeded(this, path))
+            child = structuredFindChild(path);
+         if (child != null)
+            result.put(path, child);
+      }
+      return result;
+   }
+
    public boolean removeChild(String name) throws IOException
    {
       return false;
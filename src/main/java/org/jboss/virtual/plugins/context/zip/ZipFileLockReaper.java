@@ -139,6 +139,9 @@ public class ZipFileLockReaper
          if (trace)
             log.trace("Timer called");
 
+         // no locks are held here, releasing may close other wrappers
+         ZipSession.releaseDropped();
+
          long now = System.currentTimeMillis();
          synchronized (ZipFileLockReaper.this)
          {
@@ -31,6 +31,7 @@ import java.net.URI;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.Enumeration;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -74,6 +75,9 @@ class ZipFileWrapper extends ZipWrapper
    /** true if noReaper mode is forced on a per-instance basis */
    private boolean noReaperOverride;
 
+   /** Guards opening and closing the zip file, which does i/o, so not a monitor that would pin virtual threads */
+   private final ReentrantLock lock = new ReentrantLock();
+
    // used for debugging stream leaks
    //ConcurrentLinkedQueue<ZipEntryInputStream> streams = new ConcurrentLinkedQueue<ZipEntryInputStream>();
 
@@ -132,6 +136,29 @@ class ZipFileWrapper extends ZipWrapper
       return file.isFile();
    }
 
+   /**
+    * Returns true if the archive has been modified, in which case the open
+    * <tt>ZipFile</tt> is released so that entries are re-read from the new content.
+    *
+    * @return true if modified, false otherwise
+    */
+   boolean hasBeenModified()
+   {
+      boolean modified = super.hasBeenModified();
+      if (modified)
+      {
+         try
+         {
+            closeZipFile();
+         }
+         catch (Exception ex)
+         {
+            log.debug("IGNORING: Failed to release modified file: " + file, ex);
+         }
+      }
+      return modified;
+   }
+
    /**
     * Get lastModified for the archive
     *
@@ -164,6 +191,7 @@ class ZipFileWrapper extends ZipWrapper
 
    /**
     * Open a <tt>ZipFile</tt> if none currently exists. If reaper mode is active, apply for monitoring.
+    * Open sessions keep the file open until they are closed. The caller holds the lock.
     *
     * @return a ZipFile
     * @throws IOException for any error
@@ -176,6 +204,8 @@ class ZipFileWrapper extends ZipWrapper
          if (forceNoReaper == false && noReaperOverride == false)
             ZipFileLockReaper.getInstance().register(this);
       }
+      if (ZipSession.isActive())
+         ZipSession.pinAll(this);
 
       return zipFile;
    }
@@ -185,15 +215,45 @@ class ZipFileWrapper extends ZipWrapper
     *
     * @throws IOException for any error
     */
-   synchronized void closeZipFile() throws IOException
+   void closeZipFile() throws IOException
    {
-      if (zipFile != null && getReferenceCount() <= 0)
+      lock.lock();
+      try
       {
-         ZipFile zf = zipFile;
-         zipFile = null;
-         zf.close();
-         if (forceNoReaper == false && noReaperOverride == false)
-            ZipFileLockReaper.getInstance().unregister(this);
+         if (zipFile != null && getReferenceCount() <= 0)
+         {
+            ZipFile zf = zipFile;
+            zipFile = null;
+            zf.close();
+            if (forceNoReaper == false && noReaperOverride == false)
+               ZipFileLockReaper.getInstance().unregister(this);
+         }
+      }
+      finally
+      {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Open the <tt>ZipFile</tt> if needed and count one more user, so it stays open
+    * while the caller reads from it without holding the lock.
+    *
+    * @return the zip file
+    * @throws IOException for any error
+    */
+   private ZipFile acquireZipFile() throws IOException
+   {
+      lock.lock();
+      try
+      {
+         ZipFile zf = ensureZipFile();
+         incrementRef();
+         return zf;
+      }
+      finally
+      {
+         lock.unlock();
       }
    }
 
@@ -204,23 +264,34 @@ class ZipFileWrapper extends ZipWrapper
     * @return an InputStream that locks the file for as long as it's open
     * @throws IOException for any error
     */
-   synchronized InputStream openStream(ZipEntry ent) throws IOException
+   InputStream openStream(ZipEntry ent) throws IOException
    {
       // JBVFS-57 JarInputStream composition
       if (ent.isDirectory())
          return recomposeZipAsInputStream(ent.getName());
 
-      ensureZipFile();
-      InputStream is = zipFile.getInputStream(ent);
+      ZipFile zf = acquireZipFile();
+      InputStream is;
+      try
+      {
+         is = zf.getInputStream(ent);
+      }
+      catch (IOException e)
+      {
+         release();
+         throw e;
+      }
       if (is == null)
+      {
+         release();
          throw new IOException("Entry no longer available: " + ent.getName() + " in file " + file);
-      
+      }
+
       ZipEntryInputStream zis = new ZipEntryInputStream(this, is);
 
       // debugging code
       //streams.add(zis);
 
-      incrementRef();
       return zis;
    }
 
@@ -240,16 +311,15 @@ class ZipFileWrapper extends ZipWrapper
     *
     * @throws IOException
     */
-   synchronized void acquire() throws IOException
+   void acquire() throws IOException
    {
-      ensureZipFile();
-      incrementRef();
+      acquireZipFile();
    }
 
    /**
     * Decrement usage count by one
     */
-   synchronized void release() {
+   void release() {
       super.release();
       if (forceNoReaper || noReaperOverride)
          try
@@ -265,9 +335,17 @@ class ZipFileWrapper extends ZipWrapper
    /**
     * Enumerate contents of zip archive
     */
-   synchronized Enumeration<? extends ZipEntry> entries() throws IOException
+   Enumeration<? extends ZipEntry> entries() throws IOException
    {
-      return ensureZipFile().entries();
+      lock.lock();
+      try
+      {
+         return ensureZipFile().entries();
+      }
+      finally
+      {
+         lock.unlock();
+      }
    }
 
    /**
@@ -335,32 +413,39 @@ class ZipFileWrapper extends ZipWrapper
       return file.exists() == false;
    }
 
-   protected synchronized void recomposeZip(OutputStream baos, String path) throws IOException
+   protected void recomposeZip(OutputStream baos, String path) throws IOException
    {
       ZipOutputStream zout = new ZipOutputStream(baos);
       zout.setMethod(ZipOutputStream.STORED);
 
-      ensureZipFile();
-      Enumeration<? extends ZipEntry> entries = zipFile.entries();
-      while(entries.hasMoreElements())
+      ZipFile zf = acquireZipFile();
+      try
       {
-         ZipEntry oldEntry = entries.nextElement();
-         if (oldEntry.getName().startsWith(path))
+         Enumeration<? extends ZipEntry> entries = zf.entries();
+         while(entries.hasMoreElements())
          {
-            String newName = oldEntry.getName().substring(path.length());
-            if(newName.length() == 0)
-               continue;
-
-            ZipEntry newEntry = new ZipEntry(newName);
-            newEntry.setComment(oldEntry.getComment());
-            newEntry.setTime(oldEntry.getTime());
-            newEntry.setSize(oldEntry.getSize());
-            newEntry.setCrc(oldEntry.getCrc());
-            zout.putNextEntry(newEntry);
-            if (oldEntry.isDirectory() == false)
-               VFSUtils.copyStream(zipFile.getInputStream(oldEntry), zout);
+            ZipEntry oldEntry = entries.nextElement();
+            if (oldEntry.getName().startsWith(path))
+            {
+               String newName = oldEntry.getName().substring(path.length());
+               if(newName.length() == 0)
+                  continue;
+
+               ZipEntry newEntry = new ZipEntry(newName);
+               newEntry.setComment(oldEntry.getComment());
+               newEntry.setTime(oldEntry.getTime());
+               newEntry.setSize(oldEntry.getSize());
+               newEntry.setCrc(oldEntry.getCrc());
+               zout.putNextEntry(newEntry);
+               if (oldEntry.isDirectory() == false)
+                  VFSUtils.copyStream(zf.getInputStream(oldEntry), zout);
+            }
          }
       }
+      finally
+      {
+         release();
+      }
       zout.close();
    }
 
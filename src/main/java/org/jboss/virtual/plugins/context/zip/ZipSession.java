@@ -0,0 +1,198 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual.plugins.context.zip;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Keeps the zip files touched while it is open from being closed.<p>
+ *
+ * Every zip file opened or read while a session is open keeps one extra reference
+ * for that session, so the reaper leaves it alone. The pinned zip files are not checked
+ * for modification. Closing the session drops its references together.<p>
+ *
+ * A session that is garbage collected without being closed is logged with where
+ * it was opened, and its references are dropped when the next session is opened
+ * or by the reaper, never on a path holding a wrapper lock.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class ZipSession
+{
+   /** The log */
+   private static final Logger log = Logger.getLogger(ZipSession.class);
+
+   /** The open sessions */
+   private static final List<SessionReference> sessions = new CopyOnWriteArrayList<SessionReference>();
+
+   /** The sessions collected without being closed */
+   private static final ReferenceQueue<ZipSession> dropped = new ReferenceQueue<ZipSession>();
+
+   /** The reference to this session, it outlives the session to release the pins */
+   private final SessionReference reference;
+
+   /**
+    * Open a new session
+    *
+    * @return the session
+    */
+   public static ZipSession open()
+   {
+      releaseDropped();
+      ZipSession session = new ZipSession();
+      sessions.add(session.reference);
+      return session;
+   }
+
+   /**
+    * Create a new ZipSession.
+    */
+   private ZipSession()
+   {
+      reference = new SessionReference(this, new Pins(new Throwable("The session was opened here")));
+   }
+
+   /**
+    * Whether any session is open
+    *
+    * @return true when a session is open
+    */
+   static boolean isActive()
+   {
+      return sessions.isEmpty() == false;
+   }
+
+   /**
+    * Pin a wrapper in all the open sessions
+    *
+    * @param wrapper the wrapper
+    */
+   static void pinAll(ZipWrapper wrapper)
+   {
+      for (SessionReference session : sessions)
+         session.pins.pin(wrapper);
+   }
+
+   /**
+    * Release the sessions that were collected without being closed.
+    * Releasing can close other wrappers, so the caller must not hold any wrapper lock.
+    */
+   static void releaseDropped()
+   {
+      Reference<? extends ZipSession> ref;
+      while ((ref = dropped.poll()) != null)
+      {
+         SessionReference session = (SessionReference) ref;
+         if (sessions.remove(session))
+         {
+            log.warn("A VFS session was never closed, releasing its archives", session.pins.opened);
+            session.pins.release();
+         }
+      }
+   }
+
+   /**
+    * Release all the wrappers pinned by this session,
+    * closing it more than once does nothing.
+    */
+   public void close()
+   {
+      reference.clear();
+      sessions.remove(reference);
+      reference.pins.release();
+   }
+
+   /**
+    * The wrappers pinned by a session
+    */
+   private static class Pins
+   {
+      /** Where the session was opened */
+      private final Throwable opened;
+
+      /** The pinned wrappers, null once released */
+      private Set<ZipWrapper> wrappers = new HashSet<ZipWrapper>();
+
+      private Pins(Throwable opened)
+      {
+         this.opened = opened;
+      }
+
+      /**
+       * Take a reference on the wrapper, once
+       *
+       * @param wrapper the wrapper
+       */
+      private synchronized void pin(ZipWrapper wrapper)
+      {
+         if (wrappers != null && wrappers.add(wrapper))
+         {
+            wrapper.incrementRef();
+            wrapper.pin();
+         }
+      }
+
+      /**
+       * Release all the wrappers, more than once does nothing
+       */
+      private void release()
+      {
+         Set<ZipWrapper> released;
+         synchronized (this)
+         {
+            released = wrappers;
+            wrappers = null;
+         }
+         if (released == null)
+            return;
+
+         for (ZipWrapper wrapper : released)
+         {
+            wrapper.unpin();
+            wrapper.release();
+         }
+      }
+   }
+
+   /**
+    * A weak reference to a session, holding its pins
+    */
+   private static class SessionReference extends WeakReference<ZipSession>
+   {
+      /** The pins */
+      private final Pins pins;
+
+      private SessionReference(ZipSession session, Pins pins)
+      {
+         super(session, dropped);
+         this.pins = pins;
+      }
+   }
+}
@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Enumeration;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 
 import org.jboss.logging.Logger;
@@ -51,18 +52,25 @@ abstract class ZipWrapper
    private long lastChecked;
 
    /** last known activity */
-   private long lastUsed;
+   private volatile long lastUsed;
 
    /** number of streams currently open on this wrapper */
-   private int refCount = 0;
+   private final AtomicInteger refCount = new AtomicInteger();
+
+   /** number of open sessions pinning this wrapper */
+   private final AtomicInteger sessionCount = new AtomicInteger();
 
    /**
     * Returns true if underlying source's lastModified time has changed since previous call.
+    * Always false while a {@link ZipSession} pins this wrapper.
     *
     * @return true if modified, false othwewise
     */
    boolean hasBeenModified()
    {
+      if (sessionCount.get() > 0)
+         return false;
+
       long now = System.currentTimeMillis();
       if (now - lastChecked < 1000)
          return false;
@@ -95,7 +103,7 @@ abstract class ZipWrapper
     */
    int getReferenceCount()
    {
-      return refCount;
+      return refCount.get();
    }
 
    /**
@@ -103,17 +111,32 @@ abstract class ZipWrapper
     */
    void incrementRef()
    {
-      refCount++;
+      refCount.incrementAndGet();
       lastUsed = System.currentTimeMillis();
    }
 
+   /**
+    * Mark the wrapper as pinned by one more session
+    */
+   void pin()
+   {
+      sessionCount.incrementAndGet();
+   }
+
+   /**
+    * Mark the wrapper as released by a session
+    */
+   void unpin()
+   {
+      sessionCount.decrementAndGet();
+   }
+
    /**
     * Decrement usage count by one
     */
-   synchronized void release()
+   void release()
    {
-      refCount--;
-      if (refCount <= 0)
+      if (refCount.decrementAndGet() <= 0)
       {
          lastUsed = System.currentTimeMillis();
       }
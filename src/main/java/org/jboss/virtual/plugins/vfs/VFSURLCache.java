@@ -0,0 +1,353 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual.plugins.vfs;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.logging.Logger;
+import org.jboss.virtual.VFS;
+import org.jboss.virtual.VFSUtils;
+
+/**
+ * Concurrent cache of the VFS behind a vfs url,
+ * bounded by size and idle time.
+ *
+ * Lookups never block each other. When the cache outgrows its size the least
+ * recently used tenth is dropped in one go, so the cost of finding it is spread
+ * over many puts.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class VFSURLCache
+{
+   /** The log */
+   private static final Logger log = Logger.getLogger(VFSURLCache.class);
+
+   /** The default size */
+   private static final int DEFAULT_MAX_SIZE = 1000;
+
+   /** The default idle time */
+   private static final long DEFAULT_IDLE_TIME = 300000;
+
+   /** The entries, keyed by external form since URL.equals may do name resolution */
+   private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+   /** The maximum size, 0 turns the cache off */
+   private volatile int maxSize;
+
+   /** The time in ms after which an unused entry is dropped, 0 or less keeps entries until evicted by size */
+   private volatile long idleTime;
+
+   /** The hits */
+   private final AtomicLong hits = new AtomicLong();
+
+   /** The misses */
+   private final AtomicLong misses = new AtomicLong();
+
+   /** The evictions */
+   private final AtomicLong evictions = new AtomicLong();
+
+   /**
+    * Create a new VFSURLCache configured from the system properties.
+    */
+   public VFSURLCache()
+   {
+      this(VFSUtils.getIntProperty(VFSUtils.URL_CACHE_SIZE_KEY, DEFAULT_MAX_SIZE),
+           VFSUtils.getLongProperty(VFSUtils.URL_CACHE_IDLE_TIME_KEY, DEFAULT_IDLE_TIME));
+   }
+
+   /**
+    * Create a new VFSURLCache.
+    *
+    * @param maxSize the maximum size, 0 turns the cache off
+    * @param idleTime the time in ms after which an unused entry is dropped
+    */
+   public VFSURLCache(int maxSize, long idleTime)
+   {
+      this.maxSize = maxSize;
+      this.idleTime = idleTime;
+   }
+
+   /**
+    * Get the cached vfs.
+    *
+    * @param url the vfs url
+    * @return the vfs or null if not cached
+    */
+   public VFS get(URL url)
+   {
+      if (url == null)
+         throw new IllegalArgumentException("Null url");
+
+      String key = url.toExternalForm();
+      Entry entry = entries.get(key);
+      if (entry != null)
+      {
+         long now = System.currentTimeMillis();
+         long idle = idleTime;
+         if (idle <= 0 || now - entry.lastUsed <= idle)
+         {
+            entry.lastUsed = now;
+            hits.incrementAndGet();
+            return entry.vfs;
+         }
+         if (entries.remove(key, entry))
+            evictions.incrementAndGet();
+      }
+      misses.incrementAndGet();
+      return null;
+   }
+
+   /**
+    * Cache a vfs.
+    *
+    * @param url the vfs url
+    * @param vfs the vfs
+    */
+   public void put(URL url, VFS vfs)
+   {
+      if (url == null)
+         throw new IllegalArgumentException("Null url");
+      if (vfs == null)
+         throw new IllegalArgumentException("Null vfs");
+
+      int max = maxSize;
+      if (max <= 0)
+         return;
+
+      entries.put(url.toExternalForm(), new Entry(vfs, System.currentTimeMillis()));
+      if (entries.size() > max)
+         evict(max);
+   }
+
+   /**
+    * Drop the cached vfs for a url, e.g. when its root has changed.
+    *
+    * @param url the vfs url
+    * @return true if there was one
+    */
+   public boolean invalidate(URL url)
+   {
+      if (url == null)
+         throw new IllegalArgumentException("Null url");
+
+      boolean removed = entries.remove(url.toExternalForm()) != null;
+      if (removed)
+         evictions.incrementAndGet();
+      return removed;
+   }
+
+   /**
+    * Drop everything.
+    */
+   public void clear()
+   {
+      entries.clear();
+   }
+
+   /**
+    * Get the number of cached entries.
+    *
+    * @return the size
+    */
+   public int size()
+   {
+      return entries.size();
+   }
+
+   /**
+    * Get the maximum size.
+    *
+    * @return the maximum size
+    */
+   public int getMaxSize()
+   {
+      return maxSize;
+   }
+
+   /**
+    * Set the maximum size, 0 turns the cache off.
+    *
+    * @param maxSize the maximum size
+    */
+   public void setMaxSize(int maxSize)
+   {
+      this.maxSize = maxSize;
+      if (maxSize <= 0)
+         clear();
+      else if (entries.size() > maxSize)
+         evict(maxSize);
+   }
+
+   /**
+    * Get the idle time.
+    *
+    * @return the idle time in ms
+    */
+   public long getIdleTime()
+   {
+      return idleTime;
+   }
+
+   /**
+    * Set the idle time.
+    *
+    * @param idleTime the idle time in ms, 0 or less keeps entries until evicted by size
+    */
+   public void setIdleTime(long idleTime)
+   {
+      this.idleTime = idleTime;
+   }
+
+   /**
+    * Get the number of hits.
+    *
+    * @return the hits
+    */
+   public long getHits()
+   {
+      return hits.get();
+   }
+
+   /**
+    * Get the number of misses.
+    *
+    * @return the misses
+    */
+   public long getMisses()
+   {
+      return misses.get();
+   }
+
+   /**
+    * Get the number of evictions, including invalidations.
+    *
+    * @return the evictions
+    */
+   public long getEvictions()
+   {
+      return evictions.get();
+   }
+
+   /**
+    * Reset the counters.
+    */
+   public void resetStatistics()
+   {
+      hits.set(0);
+      misses.set(0);
+      evictions.set(0);
+   }
+
+   /**
+    * Drop idle entries and, if still too big, the least recently used ones.
+    *
+    * @param max the maximum size
+    */
+   private synchronized void evict(int max)
+   {
+      if (entries.size() <= max)
+         return;
+
+      long now = System.currentTimeMillis();
+      long idle = idleTime;
+      List<Candidate> candidates = new ArrayList<Candidate>(entries.size());
+      int removed = 0;
+      for (Map.Entry<String, Entry> entry : entries.entrySet())
+      {
+         Candidate candidate = new Candidate(entry.getKey(), entry.getValue());
+         if (idle > 0 && now - candidate.lastUsed > idle)
+         {
+            if (entries.remove(candidate.key, candidate.entry))
+               removed++;
+         }
+         else
+         {
+            candidates.add(candidate);
+         }
+      }
+
+      int target = max - max / 10;
+      if (entries.size() > target)
+      {
+         Collections.sort(candidates);
+         for (Candidate candidate : candidates)
+         {
+            if (entries.size() <= target)
+               break;
+            if (entries.remove(candidate.key, candidate.entry))
+               removed++;
+         }
+      }
+
+      evictions.addAndGet(removed);
+      if (log.isTraceEnabled())
+         log.trace("Evicted " + removed + " vfs url cache entries");
+   }
+
+   /**
+    * An eviction candidate, with its last use fixed for sorting.
+    */
+   private static class Candidate implements Comparable<Candidate>
+   {
+      private final String key;
+      private final Entry entry;
+      private final long lastUsed;
+
+      private Candidate(String key, Entry entry)
+      {
+         this.key = key;
+         this.entry = entry;
+         this.lastUsed = entry.lastUsed;
+      }
+
+      public int compareTo(Candidate other)
+      {
+         return lastUsed < other.lastUsed ? -1 : (lastUsed == other.lastUsed ? 0 : 1);
+      }
+   }
+
+   /**
+    * A cached vfs.
+    */
+   private static class Entry
+   {
+      /** The vfs */
+      private final VFS vfs;
+
+      /** The last use */
+      private volatile long lastUsed;
+
+      private Entry(VFS vfs, long now)
+      {
+         this.vfs = vfs;
+         this.lastUsed = now;
+      }
+   }
+}
@@ -25,10 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
-import java.util.Collections;
-import java.util.Map;
 
-import org.jboss.util.collection.SoftValueHashMap;
 import org.jboss.virtual.VFS;
 import org.jboss.virtual.VirtualFile;
 
@@ -41,8 +38,7 @@ import org.jboss.virtual.VirtualFile;
  */
 public class VirtualFileURLConnection extends URLConnection
 {
-   @SuppressWarnings("unchecked")
-   public static Map<URL, VFS> urlCache = Collections.<URL, VFS>synchronizedMap(new SoftValueHashMap());
+   public static final VFSURLCache urlCache = new VFSURLCache();
 
    protected VirtualFile file;
    protected URL vfsurl;
@@ -103,22 +99,22 @@ public class VirtualFileURLConnection extends URLConnection
    protected static VirtualFile resolveCachedVirtualFile(URL vfsurl, String relativePath) throws IOException
    {
       VFS vfs = urlCache.get(vfsurl);
-      if (vfs == null)
-      {
-         vfs = VFS.getVFS(vfsurl);
-         urlCache.put(vfsurl, vfs);
-      }
-      else
+      if (vfs != null)
       {
          // if the root of VFS has changed on disk, lets purge it
          // this is important for Jar files as we don't want stale jars as the
          // root of the VFS (i.e., on redeployment)
          if (vfs.getRoot().hasBeenModified())
          {
-            vfs = VFS.getVFS(vfsurl);
-            urlCache.put(vfsurl, vfs);
+            urlCache.invalidate(vfsurl);
+            vfs = null;
          }
       }
+      if (vfs == null)
+      {
+         vfs = VFS.getVFS(vfsurl);
+         urlCache.put(vfsurl, vfs);
+      }
       return vfs.findChild(relativePath);
    }
 
@@ -0,0 +1,130 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual.plugins.vfs.helpers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.jboss.virtual.VFSUtils;
+
+/**
+ * Runs virtual file operations in the background.<p>
+ *
+ * Operations go to the executor set with {@link #setExecutor(Executor)}, or to
+ * a shared daemon pool sized by {@link VFSUtils#ASYNC_THREADS_KEY}. Without
+ * either, they run on the calling thread and the returned future is already done.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class AsyncExecution
+{
+   /** The number of threads of the shared pool */
+   private static final int asyncThreads;
+
+   /** The executor set by the user */
+   private static volatile Executor executor;
+
+   /** The shared pool, created on first use */
+   private static Executor defaultExecutor;
+
+   static
+   {
+      asyncThreads = VFSUtils.getIntProperty(VFSUtils.ASYNC_THREADS_KEY, Runtime.getRuntime().availableProcessors());
+   }
+
+   /**
+    * Run an operation in the background.
+    *
+    * @param <T> the result type
+    * @param operation the operation
+    * @return the future result
+    * @throws IllegalArgumentException for a null operation
+    */
+   public static <T> Future<T> submit(Callable<T> operation)
+   {
+      if (operation == null)
+         throw new IllegalArgumentException("Null operation");
+
+      FutureTask<T> task = new FutureTask<T>(operation);
+      execute(task);
+      return task;
+   }
+
+   /**
+    * Run a task in the background, or on the caller when there is no executor.
+    *
+    * @param task the task
+    * @throws IllegalArgumentException for a null task
+    */
+   public static void execute(Runnable task)
+   {
+      if (task == null)
+         throw new IllegalArgumentException("Null task");
+
+      Executor current = getExecutor();
+      if (current == null)
+         task.run();
+      else
+         current.execute(task);
+   }
+
+   /**
+    * Get the executor running the operations.
+    *
+    * @return the executor or null when operations run on the caller
+    */
+   public static Executor getExecutor()
+   {
+      Executor current = executor;
+      if (current != null)
+         return current;
+      return getDefaultExecutor();
+   }
+
+   /**
+    * Set the executor running the operations.
+    *
+    * @param executor the executor, null to go back to the shared pool
+    */
+   public static void setExecutor(Executor executor)
+   {
+      AsyncExecution.executor = executor;
+   }
+
+   /**
+    * Get the shared pool
+    *
+    * @return the pool or null when asynchronous operations are turned off
+    */
+   private static synchronized Executor getDefaultExecutor()
+   {
+      if (asyncThreads <= 0)
+         return null;
+
+      if (defaultExecutor == null)
+         defaultExecutor = Executors.newFixedThreadPool(asyncThreads, new DaemonThreadFactory("VFS Async"));
+      return defaultExecutor;
+   }
+}
@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual.plugins.vfs.helpers;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the numbered daemon threads of the vfs pools,
+ * so they never keep the vm from exiting.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class DaemonThreadFactory implements ThreadFactory
+{
+   /** The thread name prefix */
+   private final String name;
+
+   /** The number of threads created */
+   private final AtomicInteger count = new AtomicInteger();
+
+   /**
+    * Create a new DaemonThreadFactory.
+    *
+    * @param name the thread name prefix, e.g. "VFS Listing"
+    * @throws IllegalArgumentException for a null name
+    */
+   public DaemonThreadFactory(String name)
+   {
+      if (name == null)
+         throw new IllegalArgumentException("Null name");
+      this.name = name;
+   }
+
+   public Thread newThread(Runnable r)
+   {
+      Thread thread = new Thread(r, name + " " + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+   }
+}
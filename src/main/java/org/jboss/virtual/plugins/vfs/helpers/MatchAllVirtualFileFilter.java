@@ -23,6 +23,8 @@ package org.jboss.virtual.plugins.vfs.helpers;
 
 import org.jboss.virtual.VirtualFile;
 import org.jboss.virtual.VirtualFileFilter;
+import org.jboss.virtual.spi.VirtualFileHandler;
+import org.jboss.virtual.spi.VirtualFileHandlerFilter;
 
 /**
  * MatchAllVirtualFileFilter.
@@ -30,7 +32,7 @@ import org.jboss.virtual.VirtualFileFilter;
  * @author <a href="adrian@jboss.com">Adrian Brock</a>
  * @version $Revision: 1.1 $
  */
-public class MatchAllVirtualFileFilter implements VirtualFileFilter
+public class MatchAllVirtualFileFilter implements VirtualFileFilter, VirtualFileHandlerFilter
 {
    /** The instance */
    public static final MatchAllVirtualFileFilter INSTANCE = new MatchAllVirtualFileFilter();
@@ -46,4 +48,9 @@ public class MatchAllVirtualFileFilter implements VirtualFileFilter
    {
       return true;
    }
+
+   public boolean accepts(VirtualFileHandler handler)
+   {
+      return true;
+   }
 }
@@ -0,0 +1,295 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual.plugins.vfs.helpers;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.logging.Logger;
+import org.jboss.virtual.VFSUtils;
+import org.jboss.virtual.VirtualFileFilter;
+import org.jboss.virtual.VisitorAttributes;
+import org.jboss.virtual.spi.VirtualFileHandler;
+import org.jboss.virtual.spi.VirtualFileHandlerVisitor;
+
+/**
+ * Visits a tree with several threads.<p>
+ *
+ * Every directory the visitor recurses into, including the root of a nested
+ * archive, is listed by its own task on a shared pool. Once enough tasks are
+ * queued to keep the pool busy, subtrees are walked by the thread that found them.
+ * The caller walks queued subtrees too while it waits, so a visit started from
+ * a pool thread, e.g. by a visitor, never waits for a pool that is all waiting.
+ * The first error stops the remaining tasks and is rethrown to the caller.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class ParallelVisit
+{
+   /** The log */
+   private static final Logger log = Logger.getLogger(ParallelVisit.class);
+
+   /** The number of threads walking subtrees */
+   private static final int visitThreads;
+
+   /** The executor, created on first use */
+   private static ExecutorService visitExecutor;
+
+   static
+   {
+      visitThreads = VFSUtils.getIntProperty(VFSUtils.VISIT_THREADS_KEY, Runtime.getRuntime().availableProcessors());
+   }
+
+   /** The visitor */
+   private final VirtualFileHandlerVisitor visitor;
+
+   /** The executor */
+   private final ExecutorService executor;
+
+   /** Whether to visit leaves only */
+   private final boolean leavesOnly;
+
+   /** Whether to ignore errors */
+   private final boolean ignoreErrors;
+
+   /** Whether to include hidden files */
+   private final boolean includeHidden;
+
+   /** The recurse filter */
+   private final VirtualFileFilter recurseFilter;
+
+   /** The number of subtrees submitted but not yet done */
+   private final AtomicInteger pending = new AtomicInteger();
+
+   /** The subtrees submitted but not yet taken by a thread */
+   private final Queue<VirtualFileHandler> queue = new ConcurrentLinkedQueue<VirtualFileHandler>();
+
+   /** The first error */
+   private volatile Throwable failure;
+
+   /**
+    * Visit a handler and its children with several threads.<p>
+    *
+    * When parallel visits are turned off the handler's context visits it on the calling thread.
+    *
+    * @param handler the handler
+    * @param visitor the visitor, must be thread safe
+    * @throws IOException for any problem accessing the virtual file system
+    * @throws IllegalArgumentException for a null handler or visitor
+    */
+   public static void visit(VirtualFileHandler handler, VirtualFileHandlerVisitor visitor) throws IOException
+   {
+      if (handler == null)
+         throw new IllegalArgumentException("Null handler");
+      if (visitor == null)
+         throw new IllegalArgumentException("Null visitor");
+
+      ExecutorService executor = getVisitExecutor();
+      if (executor == null)
+         handler.getVFSContext().visit(handler, visitor);
+      else
+         new ParallelVisit(visitor, executor).run(handler);
+   }
+
+   /**
+    * Create a new ParallelVisit.
+    *
+    * @param visitor the visitor
+    * @param executor the executor
+    */
+   private ParallelVisit(VirtualFileHandlerVisitor visitor, ExecutorService executor)
+   {
+      VisitorAttributes attributes = visitor.getAttributes();
+      this.visitor = visitor;
+      this.executor = executor;
+      this.leavesOnly = attributes.isLeavesOnly();
+      this.ignoreErrors = attributes.isIgnoreErrors();
+      this.includeHidden = attributes.isIncludeHidden();
+      this.recurseFilter = attributes.getRecurseFilter();
+   }
+
+   /**
+    * Visit the tree and wait for all the subtrees
+    *
+    * @param handler the root
+    * @throws IOException for any error
+    */
+   private void run(VirtualFileHandler handler) throws IOException
+   {
+      if (visitor.getAttributes().isIncludeRoot())
+         visitor.visit(handler);
+
+      submit(handler);
+      try
+      {
+         while (true)
+         {
+            VirtualFileHandler next = queue.poll();
+            if (next != null)
+            {
+               walk(next);
+               continue;
+            }
+            synchronized (this)
+            {
+               if (pending.get() == 0)
+                  break;
+               if (queue.isEmpty())
+                  wait();
+            }
+         }
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         failure = e;
+         throw new InterruptedIOException("Interrupted visiting " + handler);
+      }
+
+      Throwable t = failure;
+      if (t instanceof IOException)
+         throw (IOException) t;
+      if (t instanceof RuntimeException)
+         throw (RuntimeException) t;
+      if (t instanceof Error)
+         throw (Error) t;
+   }
+
+   /**
+    * Queue a subtree for the pool or the waiting caller, whichever takes it first
+    *
+    * @param handler the subtree root
+    */
+   private void submit(VirtualFileHandler handler)
+   {
+      pending.incrementAndGet();
+      queue.add(handler);
+      executor.execute(new Runnable()
+      {
+         public void run()
+         {
+            VirtualFileHandler next = queue.poll();
+            if (next != null)
+               walk(next);
+         }
+      });
+      synchronized (this)
+      {
+         notifyAll();
+      }
+   }
+
+   /**
+    * Walk a queued subtree
+    *
+    * @param handler the subtree root
+    */
+   private void walk(VirtualFileHandler handler)
+   {
+      try
+      {
+         if (failure == null)
+            visitChildren(handler);
+      }
+      catch (Throwable t)
+      {
+         if (failure == null)
+            failure = t;
+      }
+      finally
+      {
+         if (pending.decrementAndGet() == 0)
+         {
+            synchronized (this)
+            {
+               notifyAll();
+            }
+         }
+      }
+   }
+
+   /**
+    * Visit the children of a handler
+    *
+    * @param handler the handler
+    * @throws IOException for any error
+    */
+   private void visitChildren(VirtualFileHandler handler) throws IOException
+   {
+      boolean trace = log.isTraceEnabled();
+      List<VirtualFileHandler> children;
+      try
+      {
+         children = handler.getVFSContext().getChildren(handler, ignoreErrors);
+      }
+      catch (IOException e)
+      {
+         if (ignoreErrors == false)
+            throw e;
+         if (trace)
+            log.trace("Ignored: " + e);
+         return;
+      }
+
+      for (VirtualFileHandler child : children)
+      {
+         if (failure != null)
+            return;
+
+         if (includeHidden == false && child.isHidden())
+            continue;
+
+         boolean isLeaf = child.isLeaf();
+         if (leavesOnly == false || isLeaf)
+            visitor.visit(child);
+
+         if (isLeaf == false && recurseFilter != null && VFSUtils.accepts(recurseFilter, child))
+         {
+            if (pending.get() < visitThreads * 4)
+               submit(child);
+            else
+               visitChildren(child);
+         }
+      }
+   }
+
+   /**
+    * Get the executor used for parallel visits.
+    *
+    * @return the executor or null if parallel visits are turned off
+    */
+   private static synchronized ExecutorService getVisitExecutor()
+   {
+      if (visitThreads <= 0)
+         return null;
+
+      if (visitExecutor == null)
+         visitExecutor = Executors.newFixedThreadPool(visitThreads, new DaemonThreadFactory("VFS Visit"));
+      return visitExecutor;
+   }
+}
@@ -89,60 +89,46 @@ public class PathTokenizer
       if (path == null)
          throw new IllegalArgumentException("Null path");
 
-      char[] chars = path.toCharArray();
-      StringBuilder buffer = new StringBuilder();
       List<String> list = new ArrayList<String>();
-      String specialToken = null;
-
-      for (int index=0; index < chars.length; index++)
+      int length = path.length();
+      int start = 0;
+      // walk the segments in place, only the tokens themselves are allocated
+      while (start < length)
       {
-         char ch = chars[index];
-
-         if (ch == '/')
-         {
-            if (index > 0)
-            {
-               if (buffer.length() == 0 && specialToken == null)
-                  continue;
-
-               if (specialToken != null)
-                  list.add(specialToken);
-               else
-                  list.add(buffer.toString());
-
-               // reset
-               buffer.setLength(0);
-               specialToken = null;
-            }
-         }
-         else if (ch == '.')
-         {
-            if (specialToken == null && buffer.length() == 0)
-               specialToken = CURRENT_PATH;
-            else if (specialToken == CURRENT_PATH && buffer.length() == 0)
-               specialToken = REVERSE_PATH;
-            else if (specialToken != null && buffer.length() == 0)
-               throw new IllegalArgumentException("Illegal token in path: " + path);
-            else
-               buffer.append(ch);
-         }
-         else
-         {
-            // token starts with '.' or '..', but also has some path after that
-            if (specialToken != null)
-               throw new IllegalArgumentException("Illegal token in path: " + path);
+         int end = path.indexOf('/', start);
+         if (end < 0)
+            end = length;
+
+         if (end > start)
+            list.add(getToken(path, start, end));
 
-            buffer.append(ch);
-         }
+         start = end + 1;
       }
+      return list;
+   }
 
-      // add last token
-      if (specialToken != null)
-         list.add(specialToken);
-      else if (buffer.length() > 0)
-         list.add(buffer.toString());
+   /**
+    * Get the token for a segment of a path.
+    *
+    * @param path the path
+    * @param start the segment start
+    * @param end the segment end, exclusive
+    * @return the token
+    * @throws IllegalArgumentException if the segment starts with '.' without being a . or .. token
+    */
+   private static String getToken(String path, int start, int end)
+   {
+      if (path.charAt(start) != '.')
+         return path.substring(start, end);
 
-      return list;
+      int length = end - start;
+      if (length == 1)
+         return CURRENT_PATH;
+      if (length == 2 && path.charAt(start + 1) == '.')
+         return REVERSE_PATH;
+
+      // token starts with '.' or '..', but also has some path after that
+      throw new IllegalArgumentException("Illegal token in path: " + path);
    }
    
    /**
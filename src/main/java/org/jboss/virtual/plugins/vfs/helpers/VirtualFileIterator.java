@@ -0,0 +1,197 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual.plugins.vfs.helpers;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.jboss.logging.Logger;
+import org.jboss.virtual.VFSUtils;
+import org.jboss.virtual.VirtualFile;
+import org.jboss.virtual.VirtualFileFilter;
+import org.jboss.virtual.VirtualFileFilterWithAttributes;
+import org.jboss.virtual.VisitorAttributes;
+import org.jboss.virtual.spi.VirtualFileHandler;
+
+/**
+ * Lazily walks the children of a handler in the same order a visitor would see them.<p>
+ *
+ * A directory is only listed when the walk reaches it and a virtual file is only
+ * created for a handler that is actually examined, so stopping early skips the rest
+ * of the tree. Problems listing a directory below the root are rethrown as a
+ * RuntimeException wrapping the original IOException unless the attributes ignore errors.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class VirtualFileIterator implements Iterator<VirtualFile>
+{
+   /** The log */
+   private static final Logger log = Logger.getLogger(VirtualFileIterator.class);
+
+   /** The filter */
+   private final VirtualFileFilter filter;
+
+   /** The attributes */
+   private final VisitorAttributes attributes;
+
+   /** The open directory listings, innermost first */
+   private final LinkedList<Iterator<VirtualFileHandler>> stack = new LinkedList<Iterator<VirtualFileHandler>>();
+
+   /** The handler whose children are to be listed next */
+   private VirtualFileHandler expand;
+
+   /** The root until the walk has started */
+   private VirtualFileHandler root;
+
+   /** The next file */
+   private VirtualFile next;
+
+   /**
+    * Create a new VirtualFileIterator.
+    *
+    * @param handler the handler to walk
+    * @param filter the filter, matches everything if null
+    * @param attributes the attributes, taken from the filter or the default if null
+    * @throws IllegalArgumentException for a null handler
+    */
+   public VirtualFileIterator(VirtualFileHandler handler, VirtualFileFilter filter, VisitorAttributes attributes)
+   {
+      if (handler == null)
+         throw new IllegalArgumentException("Null handler");
+      if (filter == null)
+         filter = MatchAllVirtualFileFilter.INSTANCE;
+      if (attributes == null)
+      {
+         if (filter instanceof VirtualFileFilterWithAttributes)
+            attributes = ((VirtualFileFilterWithAttributes) filter).getAttributes();
+         else
+            attributes = VisitorAttributes.DEFAULT;
+      }
+      this.filter = filter;
+      this.attributes = attributes;
+      this.root = handler;
+   }
+
+   public boolean hasNext()
+   {
+      if (next == null)
+         next = advance();
+      return next != null;
+   }
+
+   public VirtualFile next()
+   {
+      if (hasNext() == false)
+         throw new NoSuchElementException();
+      VirtualFile result = next;
+      next = null;
+      return result;
+   }
+
+   public void remove()
+   {
+      throw new UnsupportedOperationException("remove");
+   }
+
+   /**
+    * Find the next matching file
+    *
+    * @return the next file or null if the walk is complete
+    */
+   private VirtualFile advance()
+   {
+      try
+      {
+         if (root != null)
+         {
+            VirtualFileHandler handler = root;
+            root = null;
+            if (handler.isLeaf())
+               return null;
+            expand = handler;
+            if (attributes.isIncludeRoot() && VFSUtils.accepts(filter, handler))
+               return handler.getVirtualFile();
+         }
+
+         while (true)
+         {
+            if (expand != null)
+            {
+               stack.addFirst(getChildren(expand).iterator());
+               expand = null;
+            }
+            if (stack.isEmpty())
+               return null;
+
+            Iterator<VirtualFileHandler> children = stack.getFirst();
+            if (children.hasNext() == false)
+            {
+               stack.removeFirst();
+               continue;
+            }
+
+            VirtualFileHandler child = children.next();
+            if (attributes.isIncludeHidden() == false && child.isHidden())
+               continue;
+
+            boolean isLeaf = child.isLeaf();
+            VirtualFileFilter recurseFilter = attributes.getRecurseFilter();
+            if (isLeaf == false && recurseFilter != null && VFSUtils.accepts(recurseFilter, child))
+               expand = child;
+            if ((attributes.isLeavesOnly() == false || isLeaf) && VFSUtils.accepts(filter, child))
+               return child.getVirtualFile();
+         }
+      }
+      catch (IOException e)
+      {
+         throw new RuntimeException(e);
+      }
+   }
+
+   /**
+    * Get the children of a handler
+    *
+    * @param handler the handler
+    * @return the children
+    * @throws IOException for any error listing the children
+    */
+   private List<VirtualFileHandler> getChildren(VirtualFileHandler handler) throws IOException
+   {
+      boolean ignoreErrors = attributes.isIgnoreErrors();
+      try
+      {
+         return handler.getVFSContext().getChildren(handler, ignoreErrors);
+      }
+      catch (IOException e)
+      {
+         if (ignoreErrors == false)
+            throw e;
+         if (log.isTraceEnabled())
+            log.trace("Ignored: " + e);
+         return Collections.emptyList();
+      }
+   }
+}
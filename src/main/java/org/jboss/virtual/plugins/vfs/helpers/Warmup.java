@@ -0,0 +1,226 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.virtual.plugins.vfs.helpers;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.logging.Logger;
+import org.jboss.virtual.ParallelVirtualFileVisitor;
+import org.jboss.virtual.VirtualFile;
+import org.jboss.virtual.VirtualFileFilter;
+import org.jboss.virtual.VisitorAttributes;
+import org.jboss.virtual.WarmupFuture;
+import org.jboss.virtual.WarmupPolicy;
+import org.jboss.virtual.plugins.context.jar.JarUtils;
+
+/**
+ * Indexes a tree in the background, so the first real user of
+ * an archive does not pay for reading its entries.<p>
+ *
+ * The walk is a parallel visit, directories and archives are listed
+ * by several threads. Files that cannot be read are skipped.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class Warmup extends FutureTask<Integer> implements WarmupFuture
+{
+   /** The log */
+   private static final Logger log = Logger.getLogger(Warmup.class);
+
+   /** The number of files indexed */
+   private final AtomicInteger indexed;
+
+   /** The number of bytes read ahead */
+   private final AtomicLong prefetched;
+
+   /**
+    * Start indexing a tree on the executor of the asynchronous operations.
+    *
+    * @param root the root
+    * @param policy the policy
+    * @return the progress
+    * @throws IllegalArgumentException for a null root or policy
+    */
+   public static WarmupFuture start(VirtualFile root, WarmupPolicy policy)
+   {
+      if (root == null)
+         throw new IllegalArgumentException("Null root");
+      if (policy == null)
+         throw new IllegalArgumentException("Null policy");
+
+      Warmup warmup = new Warmup(new WarmupVisitor(root, policy));
+      AsyncExecution.execute(warmup);
+      return warmup;
+   }
+
+   /**
+    * Create a new Warmup.
+    *
+    * @param visitor the visitor
+    */
+   private Warmup(final WarmupVisitor visitor)
+   {
+      super(new Callable<Integer>()
+      {
+         public Integer call() throws IOException
+         {
+            visitor.root.visit(visitor);
+            return visitor.indexed.get();
+         }
+      });
+      this.indexed = visitor.indexed;
+      this.prefetched = visitor.prefetched;
+   }
+
+   public int getIndexedCount()
+   {
+      return indexed.get();
+   }
+
+   public long getPrefetchedBytes()
+   {
+      return prefetched.get();
+   }
+
+   /**
+    * Counts the files and reads ahead the ones the policy asks for
+    */
+   private static class WarmupVisitor extends AbstractVirtualFileVisitor implements ParallelVirtualFileVisitor
+   {
+      /** The root */
+      private final VirtualFile root;
+
+      /** The prefetch filter */
+      private final VirtualFileFilter prefetchFilter;
+
+      /** The number of files indexed */
+      private final AtomicInteger indexed = new AtomicInteger();
+
+      /** The number of bytes read ahead */
+      private final AtomicLong prefetched = new AtomicLong();
+
+      /**
+       * Create a new WarmupVisitor.
+       *
+       * @param root the root
+       * @param policy the policy
+       */
+      public WarmupVisitor(VirtualFile root, WarmupPolicy policy)
+      {
+         super(createAttributes(root, policy));
+         this.root = root;
+         this.prefetchFilter = policy.getPrefetchFilter();
+      }
+
+      public void visit(VirtualFile file)
+      {
+         indexed.incrementAndGet();
+         if (prefetchFilter == null)
+            return;
+
+         try
+         {
+            if (file.isLeaf() && prefetchFilter.accepts(file))
+               prefetched.addAndGet(file.getBytes().length);
+         }
+         catch (IOException e)
+         {
+            log.debug("Ignoring failure to read ahead " + file, e);
+         }
+      }
+
+      /**
+       * Visit everything, recursing as deep as the policy says
+       *
+       * @param root the root
+       * @param policy the policy
+       * @return the attributes
+       */
+      private static VisitorAttributes createAttributes(VirtualFile root, WarmupPolicy policy)
+      {
+         VisitorAttributes attributes = new VisitorAttributes();
+         attributes.setIgnoreErrors(true);
+         attributes.setIncludeHidden(true);
+         attributes.setRecurseFilter(new DepthFilter(depth(root.getPathName()), policy));
+         return attributes;
+      }
+   }
+
+   /**
+    * Stops the recursion at the max depth and, if asked, at nested archives
+    */
+   private static class DepthFilter implements VirtualFileFilter
+   {
+      /** The depth of the root */
+      private final int rootDepth;
+
+      /** The max depth below the root */
+      private final int maxDepth;
+
+      /** Whether to recurse into archives */
+      private final boolean includeNestedArchives;
+
+      /**
+       * Create a new DepthFilter.
+       *
+       * @param rootDepth the depth of the root
+       * @param policy the policy
+       */
+      public DepthFilter(int rootDepth, WarmupPolicy policy)
+      {
+         this.rootDepth = rootDepth;
+         this.maxDepth = policy.getMaxDepth();
+         this.includeNestedArchives = policy.isIncludeNestedArchives();
+      }
+
+      public boolean accepts(VirtualFile file)
+      {
+         if (depth(file.getPathName()) - rootDepth >= maxDepth)
+            return false;
+         return includeNestedArchives || JarUtils.isArchive(file.getName()) == false;
+      }
+   }
+
+   /**
+    * Get the number of names in a path
+    *
+    * @param path the path
+    * @return the depth
+    */
+   private static int depth(String path)
+   {
+      if (path.length() == 0)
+         return 0;
+
+      int depth = 1;
+      for (int i = 0; i < path.length(); ++i)
+      {
+         if (path.charAt(i) == '/')
+            ++depth;
+      }
+      return depth;
+   }
+}
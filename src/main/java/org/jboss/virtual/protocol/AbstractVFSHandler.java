@@ -27,8 +27,11 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLDecoder;
 import java.net.URLStreamHandler;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.jboss.virtual.plugins.vfs.VirtualFileURLConnection;
 
@@ -42,6 +45,9 @@ public abstract class AbstractVFSHandler extends URLStreamHandler
 {
    private static Map<Class, Integer> lengths = new WeakHashMap<Class, Integer>();
 
+   /** The archives vfs urls resolved to, by path, bounded like the vfs url cache */
+   private static final ConcurrentMap<String, ArchiveRoot> archiveRoots = new ConcurrentHashMap<String, ArchiveRoot>();
+
    /**
     * Get protocol name length.
     * e.g. vfsfile - 7, vfszip - 6, ...
@@ -73,7 +79,13 @@ public abstract class AbstractVFSHandler extends URLStreamHandler
          file = file.substring(0, file.lastIndexOf('?'));
 
       File fp = new File(file);
-      if (fp.exists())
+      ArchiveRoot archive = findArchiveRoot(fp);
+      if (archive != null)
+      {
+         vfsurl = archive.url;
+         relative = fp.getPath().substring(archive.file.getPath().length() + 1).replace(File.separatorChar, '/');
+      }
+      else if (fp.exists())
       {
          vfsurl = fp.getParentFile().toURL();
          relative = fp.getName();
@@ -87,6 +99,9 @@ public abstract class AbstractVFSHandler extends URLStreamHandler
             if (curr.exists())
             {
                vfsurl = curr.toURL();
+               // nothing can exist below a plain file, so the same prefix will always resolve here
+               if (curr.isFile())
+                  putArchiveRoot(curr, vfsurl);
                break;
             }
             else
@@ -103,4 +118,76 @@ public abstract class AbstractVFSHandler extends URLStreamHandler
       
       return new VirtualFileURLConnection(url, vfsurl, relative);
    }
+
+   /**
+    * Find a known archive the file lives in.
+    *
+    * @param fp the file
+    * @return the archive root or null if there is no known one
+    */
+   private static ArchiveRoot findArchiveRoot(File fp)
+   {
+      if (archiveRoots.isEmpty())
+         return null;
+
+      File curr = fp;
+      while ((curr = curr.getParentFile()) != null)
+      {
+         String path = curr.getPath();
+         ArchiveRoot archive = archiveRoots.get(path);
+         if (archive != null)
+         {
+            if (archive.file.isFile())
+               return archive;
+
+            // gone or replaced by a directory, resolve the long way
+            archiveRoots.remove(path, archive);
+            return null;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Remember an archive root, as many as the vfs url cache may hold.
+    *
+    * @param file the archive
+    * @param url the archive's url
+    */
+   private static void putArchiveRoot(File file, URL url)
+   {
+      int max = VirtualFileURLConnection.urlCache.getMaxSize();
+      if (max <= 0)
+         return;
+
+      archiveRoots.put(file.getPath(), new ArchiveRoot(file, url));
+      if (archiveRoots.size() > max)
+      {
+         // roots are resolved again on demand, so dropping any tenth will do
+         int target = max - max / 10;
+         for (Iterator<String> it = archiveRoots.keySet().iterator(); it.hasNext() && archiveRoots.size() > target;)
+         {
+            it.next();
+            it.remove();
+         }
+      }
+   }
+
+   /**
+    * An archive resolved as the root of vfs urls.
+    */
+   private static class ArchiveRoot
+   {
+      /** The archive */
+      private final File file;
+
+      /** The archive's url */
+      private final URL url;
+
+      private ArchiveRoot(File file, URL url)
+      {
+         this.file = file;
+         this.url = url;
+      }
+   }
 }
\ No newline at end of file
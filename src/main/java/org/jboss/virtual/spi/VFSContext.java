@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.jboss.virtual.VFS;
+import org.jboss.virtual.VirtualFileChangeListener;
 
 /** 
  * A virtual file context
@@ -113,4 +114,23 @@ public interface VFSContext
     * @throws IllegalArgumentException if the handler or visitor is null
     */
    void visit(VirtualFileHandler handler, VirtualFileHandlerVisitor visitor) throws IOException;
+
+   /**
+    * Listen for files created, modified or deleted under a handler
+    *
+    * @param handler the root of the subtree to watch
+    * @param listener the listener
+    * @throws IOException for any error
+    * @throws IllegalArgumentException if the handler or listener is null
+    */
+   void addChangeListener(VirtualFileHandler handler, VirtualFileChangeListener listener) throws IOException;
+
+   /**
+    * Stop delivering changes to a listener
+    *
+    * @param listener the listener
+    * @return false when not registered
+    * @throws IllegalArgumentException if the listener is null
+    */
+   boolean removeChangeListener(VirtualFileChangeListener listener);
 }
@@ -28,9 +28,12 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.jboss.virtual.VirtualFile;
+import org.jboss.virtual.VirtualFileAttributes;
+import org.jboss.virtual.VirtualFileChannel;
 
 /**
  * A virtual file handler
@@ -143,6 +146,15 @@ public interface VirtualFileHandler extends Serializable
     */
    boolean isHidden() throws IOException;
 
+   /**
+    * Get the basic attributes in one go
+    * 
+    * @return the attributes
+    * @throws IOException for any problem accessing the virtual file system
+    * @throws IllegalStateException if closed
+    */
+   VirtualFileAttributes getAttributes() throws IOException;
+
    /**
     * Access the file contents.
     * 
@@ -152,6 +164,33 @@ public interface VirtualFileHandler extends Serializable
     */
    InputStream openStream() throws IOException;
 
+   /**
+    * Open a channel reading the file contents from any position.
+    * 
+    * @return the channel
+    * @throws IOException for any problem accessing the virtual file system
+    * @throws IllegalStateException if closed
+    */
+   VirtualFileChannel openChannel() throws IOException;
+
+   /**
+    * Read the whole file contents.
+    * 
+    * @return the contents
+    * @throws IOException for any problem accessing the virtual file system
+    * @throws IllegalStateException if closed
+    */
+   byte[] getBytes() throws IOException;
+
+   /**
+    * Get the whole file contents as a read only buffer.
+    * 
+    * @return the contents
+    * @throws IOException for any problem accessing the virtual file system
+    * @throws IllegalStateException if closed
+    */
+   ByteBuffer getBuffer() throws IOException;
+
    /**
     * Get the parent
     * 
@@ -0,0 +1,225 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.test.virtual.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import junit.framework.Test;
+import org.jboss.virtual.VFS;
+import org.jboss.virtual.VirtualFile;
+import org.jboss.virtual.VirtualFileChangeEvent;
+import org.jboss.virtual.VirtualFileChangeListener;
+import org.jboss.virtual.plugins.context.ChangeMonitor;
+
+/**
+ * Test change notification.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class ChangeListenerTestCase extends AbstractVFSTest
+{
+   private long checkPeriod;
+   private long quietPeriod;
+
+   public ChangeListenerTestCase(String name)
+   {
+      super(name);
+   }
+
+   public static Test suite()
+   {
+      return suite(ChangeListenerTestCase.class);
+   }
+
+   protected void setUp() throws Exception
+   {
+      super.setUp();
+      ChangeMonitor monitor = ChangeMonitor.getInstance();
+      checkPeriod = monitor.getCheckPeriod();
+      quietPeriod = monitor.getQuietPeriod();
+      monitor.setCheckPeriod(100);
+      monitor.setQuietPeriod(300);
+   }
+
+   protected void tearDown() throws Exception
+   {
+      ChangeMonitor monitor = ChangeMonitor.getInstance();
+      monitor.setCheckPeriod(checkPeriod);
+      monitor.setQuietPeriod(quietPeriod);
+      super.tearDown();
+   }
+
+   public void testDirectoryChanges() throws Exception
+   {
+      File root = createTempRoot("testDirectoryChanges");
+      File existing = new File(root, "existing.txt");
+      assertTrue(existing.createNewFile());
+
+      VirtualFile vf = VFS.getRoot(root.toURI());
+      CollectingListener listener = new CollectingListener();
+      vf.addChangeListener(listener);
+      try
+      {
+         File created = new File(root, "created.txt");
+         assertTrue(created.createNewFile());
+         assertEvent(listener, VirtualFileChangeEvent.Type.CREATED, "created.txt");
+
+         assertTrue(existing.setLastModified(existing.lastModified() - 10000));
+         assertEvent(listener, VirtualFileChangeEvent.Type.MODIFIED, "existing.txt");
+
+         assertTrue(created.delete());
+         assertEvent(listener, VirtualFileChangeEvent.Type.DELETED, "created.txt");
+      }
+      finally
+      {
+         assertTrue(vf.removeChangeListener(listener));
+      }
+      assertFalse(vf.removeChangeListener(listener));
+   }
+
+   public void testSubtreeOnly() throws Exception
+   {
+      File root = createTempRoot("testSubtreeOnly");
+      File sub = new File(root, "sub");
+      assertTrue(sub.mkdir());
+
+      VirtualFile vf = VFS.getRoot(root.toURI()).getChild("sub");
+      CollectingListener listener = new CollectingListener();
+      vf.addChangeListener(listener);
+      try
+      {
+         assertTrue(new File(root, "outside.txt").createNewFile());
+         assertTrue(new File(sub, "inside.txt").createNewFile());
+         assertEvent(listener, VirtualFileChangeEvent.Type.CREATED, "sub/inside.txt");
+         for (VirtualFileChangeEvent event : listener.getEvents())
+            assertFalse(event.toString(), event.getPathName().equals("outside.txt"));
+      }
+      finally
+      {
+         vf.removeChangeListener(listener);
+      }
+   }
+
+   public void testArchiveChanges() throws Exception
+   {
+      File root = createTempRoot("testArchiveChanges");
+      File jar = new File(root, "archive.jar");
+      writeArchive(jar, "META-INF/a.xml");
+
+      VirtualFile vf = VFS.getRoot(root.toURI()).getChild("archive.jar");
+      assertNotNull(vf.getChild("META-INF/a.xml"));
+      CollectingListener listener = new CollectingListener();
+      vf.addChangeListener(listener);
+      try
+      {
+         writeArchive(jar, "META-INF/a.xml", "META-INF/b.xml");
+         assertTrue(jar.setLastModified(jar.lastModified() + 10000));
+         assertEvent(listener, VirtualFileChangeEvent.Type.CREATED, "archive.jar/META-INF/b.xml");
+      }
+      finally
+      {
+         vf.removeChangeListener(listener);
+      }
+   }
+
+   public void testCloseRemovesListener() throws Exception
+   {
+      File root = createTempRoot("testCloseRemovesListener");
+      File sub = new File(root, "sub");
+      assertTrue(sub.mkdir());
+
+      VirtualFile vf = VFS.getRoot(root.toURI()).getChild("sub");
+      CollectingListener listener = new CollectingListener();
+      vf.addChangeListener(listener);
+      vf.close();
+
+      assertTrue(new File(sub, "after.txt").createNewFile());
+      Thread.sleep(1000);
+      assertTrue(listener.getEvents().toString(), listener.getEvents().isEmpty());
+   }
+
+   protected File createTempRoot(String name) throws Exception
+   {
+      File root = File.createTempFile(name, ".root");
+      root.delete();
+      assertTrue(root.mkdir());
+      root.deleteOnExit();
+      return root;
+   }
+
+   protected void writeArchive(File file, String... names) throws Exception
+   {
+      JarOutputStream jos = new JarOutputStream(new FileOutputStream(file));
+      try
+      {
+         for (String name : names)
+         {
+            JarEntry entry = new JarEntry(name);
+            entry.setTime(System.currentTimeMillis());
+            jos.putNextEntry(entry);
+            jos.write(name.getBytes());
+            jos.closeEntry();
+         }
+      }
+      finally
+      {
+         jos.close();
+      }
+      file.deleteOnExit();
+   }
+
+   protected void assertEvent(CollectingListener listener, VirtualFileChangeEvent.Type type, String pathName) throws Exception
+   {
+      long end = System.currentTimeMillis() + 10000;
+      while (System.currentTimeMillis() < end)
+      {
+         for (VirtualFileChangeEvent event : listener.getEvents())
+         {
+            if (event.getType() == type && event.getPathName().equals(pathName))
+               return;
+         }
+         Thread.sleep(50);
+      }
+      fail("No " + type + " event for " + pathName + ": " + listener.getEvents());
+   }
+
+   private static class CollectingListener implements VirtualFileChangeListener
+   {
+      private List<VirtualFileChangeEvent> events = new ArrayList<VirtualFileChangeEvent>();
+
+      public synchronized void filesChanged(List<VirtualFileChangeEvent> events)
+      {
+         assertFalse(events.isEmpty());
+         this.events.addAll(events);
+      }
+
+      public synchronized List<VirtualFileChangeEvent> getEvents()
+      {
+         return new ArrayList<VirtualFileChangeEvent>(events);
+      }
+   }
+}
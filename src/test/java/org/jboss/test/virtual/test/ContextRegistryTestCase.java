@@ -0,0 +1,162 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.test.virtual.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+import junit.framework.Test;
+import org.jboss.virtual.VFS;
+import org.jboss.virtual.VFSUtils;
+import org.jboss.virtual.plugins.context.AbstractContextFactory;
+import org.jboss.virtual.plugins.context.ContextRegistry;
+import org.jboss.virtual.spi.VFSContextFactoryLocator;
+
+/**
+ * Test reuse of live contexts.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class ContextRegistryTestCase extends AbstractVFSTest
+{
+   public ContextRegistryTestCase(String name)
+   {
+      super(name);
+   }
+
+   public static Test suite()
+   {
+      return suite(ContextRegistryTestCase.class);
+   }
+
+   protected ContextRegistry getRegistry(URL url)
+   {
+      AbstractContextFactory factory = (AbstractContextFactory) VFSContextFactoryLocator.getFactory(url);
+      return factory.getContextRegistry();
+   }
+
+   public void testSameRootShared() throws Exception
+   {
+      URL url = getResource("/vfs/test");
+      VFS first = VFS.getVFS(url);
+      VFS second = VFS.getVFS(url);
+      assertSame(first, second);
+
+      URL jar = getResource("/vfs/test/jar1.jar");
+      URL zipUrl = new URL("vfszip:" + jar.getPath());
+      assertSame(VFS.getVFS(zipUrl), VFS.getVFS(zipUrl));
+   }
+
+   public void testOptionsNotShared() throws Exception
+   {
+      URL url = getResource("/vfs/test");
+      URL withOptions = new URL(url + "?caseSensitive=true");
+      assertNotSame(VFS.getVFS(url), VFS.getVFS(withOptions));
+      assertSame(VFS.getVFS(withOptions), VFS.getVFS(withOptions));
+   }
+
+   public void testChangedOptionsNotShared() throws Exception
+   {
+      File root = File.createTempFile("testChangedOptionsNotShared", ".root");
+      root.delete();
+      assertTrue(root.mkdir());
+      try
+      {
+         URL url = root.toURL();
+         VFS first = VFS.getVFS(url);
+         VFSUtils.enableCaseSensitive(first.getRoot());
+         VFS second = VFS.getVFS(url);
+         assertNotSame(first, second);
+         assertNull(VFSUtils.getOption(second.getRoot(), VFSUtils.CASE_SENSITIVE_QUERY));
+         assertSame(first, VFS.getVFS(new URL(url + "?" + VFSUtils.CASE_SENSITIVE_QUERY + "=true")));
+      }
+      finally
+      {
+         root.delete();
+      }
+   }
+
+   public void testStrongLimit() throws Exception
+   {
+      URL url = getResource("/vfs/test");
+      ContextRegistry registry = getRegistry(url);
+      int maxSize = registry.getMaxSize();
+      registry.setMaxSize(2);
+      try
+      {
+         VFS first = VFS.getVFS(url);
+         VFS.getVFS(getResource("/vfs/test/jar1.jar"));
+         VFS.getVFS(getResource("/vfs/context"));
+         VFS.getVFS(getResource("/vfs/links"));
+         // pushed out contexts are still shared while referenced
+         assertSame(first, VFS.getVFS(url));
+      }
+      finally
+      {
+         registry.setMaxSize(maxSize);
+      }
+   }
+
+   public void testDisabled() throws Exception
+   {
+      URL url = getResource("/vfs/test");
+      ContextRegistry registry = getRegistry(url);
+      int maxSize = registry.getMaxSize();
+      registry.setMaxSize(0);
+      try
+      {
+         assertEquals(0, registry.size());
+         assertNotSame(VFS.getVFS(url), VFS.getVFS(url));
+      }
+      finally
+      {
+         registry.setMaxSize(maxSize);
+      }
+   }
+
+   public void testDeletedRoot() throws Exception
+   {
+      File root = File.createTempFile("testDeletedRoot", ".root");
+      root.delete();
+      assertTrue(root.mkdir());
+      URL url = root.toURL();
+      assertSame(VFS.getVFS(url), VFS.getVFS(url));
+
+      ContextRegistry registry = getRegistry(url);
+      long checkPeriod = registry.getCheckPeriod();
+      registry.setCheckPeriod(0);
+      try
+      {
+         assertTrue(root.delete());
+         VFS.getVFS(url);
+         fail("Should not get a context for a deleted root");
+      }
+      catch (IOException expected)
+      {
+      }
+      finally
+      {
+         registry.setCheckPeriod(checkPeriod);
+      }
+   }
+}
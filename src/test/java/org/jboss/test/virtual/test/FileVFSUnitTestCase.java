@@ -22,6 +22,7 @@
 package org.jboss.test.virtual.test;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -33,17 +34,25 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
+import java.util.zip.CRC32;
 import java.util.zip.ZipInputStream;
 
 import junit.framework.Test;
@@ -51,13 +60,21 @@ import junit.framework.TestSuite;
 import org.jboss.test.virtual.support.ClassPathIterator;
 import org.jboss.test.virtual.support.ClassPathIterator.ClassPathEntry;
 import org.jboss.test.virtual.support.MetaDataMatchFilter;
+import org.jboss.virtual.AccessProfile;
 import org.jboss.virtual.MemoryFileFactory;
+import org.jboss.virtual.ParallelVirtualFileVisitor;
 import org.jboss.virtual.VFS;
 import org.jboss.virtual.VFSUtils;
 import org.jboss.virtual.VirtualFile;
+import org.jboss.virtual.VirtualFileAttributes;
+import org.jboss.virtual.VirtualFileChannel;
 import org.jboss.virtual.VisitorAttributes;
+import org.jboss.virtual.WarmupFuture;
+import org.jboss.virtual.WarmupPolicy;
+import org.jboss.virtual.plugins.context.file.DeferredZipHandler;
 import org.jboss.virtual.plugins.context.file.FileSystemContext;
 import org.jboss.virtual.plugins.context.jar.NestedJarFromStream;
+import org.jboss.virtual.plugins.vfs.helpers.AbstractVirtualFileVisitor;
 import org.jboss.virtual.plugins.vfs.helpers.SuffixMatchFilter;
 import org.jboss.virtual.spi.LinkInfo;
 import org.jboss.virtual.spi.VFSContext;
@@ -1519,6 +1536,623 @@ public class FileVFSUnitTestCase extends AbstractVFSTest
       assertTrue(tmpRoot+".delete()", tmpRoot.delete());
    }
 
+   /**
+    * Test a directory listing large enough to be created in parallel.
+    *
+    * @throws Exception
+    */
+   public void testLargeDirectoryListing()
+      throws Exception
+   {
+      File tmpRoot = File.createTempFile("vfs", ".root");
+      tmpRoot.delete();
+      tmpRoot.mkdir();
+      try
+      {
+         int count = 200;
+         for (int i = 0; i < count; ++i)
+            assertTrue(new File(tmpRoot, "file" + i + ".txt").createNewFile());
+
+         VFS vfs = VFS.getVFS(tmpRoot.toURL());
+         List<VirtualFile> children = vfs.getChildren();
+         assertEquals(count, children.size());
+
+         File[] files = tmpRoot.listFiles();
+         for (int i = 0; i < files.length; ++i)
+            assertEquals(files[i].getName(), children.get(i).getName());
+
+         List<VirtualFile> again = vfs.getChildren();
+         assertEquals(children, again);
+      }
+      finally
+      {
+         File[] files = tmpRoot.listFiles();
+         if (files != null)
+         {
+            for (File file : files)
+               file.delete();
+         }
+         tmpRoot.delete();
+      }
+   }
+
+   /**
+    * Test a parallel visitor sees the same files as a sequential one.
+    *
+    * @throws Exception
+    */
+   public void testParallelVisit()
+      throws Exception
+   {
+      URL rootURL = getResource("/vfs/test");
+      VFS vfs = VFS.getVFS(rootURL);
+
+      Set<String> expected = new HashSet<String>();
+      for (VirtualFile file : vfs.getChildrenRecursively())
+         expected.add(file.getPathName());
+      assertFalse(expected.isEmpty());
+
+      Set<String> visited = Collections.synchronizedSet(new HashSet<String>());
+      vfs.visit(new ParallelVisitor(visited));
+      assertEquals(expected, visited);
+   }
+
+   /**
+    * Test parallel visits started from inside a parallel visit complete.
+    *
+    * @throws Exception
+    */
+   public void testNestedParallelVisit()
+      throws Exception
+   {
+      URL rootURL = getResource("/vfs/test");
+      VFS vfs = VFS.getVFS(rootURL);
+
+      final Set<String> nested = Collections.synchronizedSet(new HashSet<String>());
+      Set<String> visited = Collections.synchronizedSet(new HashSet<String>());
+      vfs.visit(new ParallelVisitor(visited)
+      {
+         public void visit(VirtualFile virtualFile)
+         {
+            super.visit(virtualFile);
+            try
+            {
+               if (virtualFile.isLeaf() == false)
+                  virtualFile.visit(new ParallelVisitor(Collections.synchronizedSet(new HashSet<String>())));
+               nested.add(virtualFile.getPathName());
+            }
+            catch (Exception e)
+            {
+               throw new RuntimeException(e);
+            }
+         }
+      });
+      assertEquals(visited, nested);
+   }
+
+   private static class ParallelVisitor extends AbstractVirtualFileVisitor implements ParallelVirtualFileVisitor
+   {
+      private final Set<String> visited;
+
+      public ParallelVisitor(Set<String> visited)
+      {
+         super(VisitorAttributes.RECURSE);
+         this.visited = visited;
+      }
+
+      public void visit(VirtualFile virtualFile)
+      {
+         assertTrue(virtualFile.getPathName(), visited.add(virtualFile.getPathName()));
+      }
+   }
+
+   /**
+    * Test preloading indexes as much of the tree as the policy asks for.
+    *
+    * @throws Exception
+    */
+   public void testPreload()
+      throws Exception
+   {
+      URL rootURL = getResource("/vfs/test");
+      VirtualFile root = VFS.getRoot(rootURL);
+
+      WarmupPolicy policy = new WarmupPolicy();
+      policy.setPrefetchFilter(new SuffixMatchFilter(".class"));
+      WarmupFuture warmup = VFS.preload(root, policy);
+      int all = warmup.get();
+      assertEquals(root.getChildrenRecursively().size(), all);
+      assertEquals(all, warmup.getIndexedCount());
+      assertTrue(warmup.getPrefetchedBytes() > 0);
+
+      policy = new WarmupPolicy();
+      policy.setMaxDepth(1);
+      assertEquals(root.getChildren().size(), VFS.preload(root, policy).get().intValue());
+
+      policy = new WarmupPolicy();
+      policy.setIncludeNestedArchives(false);
+      warmup = VFS.preload(root, policy);
+      int outside = warmup.get();
+      assertTrue(outside > root.getChildren().size());
+      assertTrue(outside < all);
+      assertEquals(0, warmup.getPrefetchedBytes());
+   }
+
+   /**
+    * Test recording which files are read and replaying them.
+    *
+    * @throws Exception
+    */
+   public void testAccessProfile()
+      throws Exception
+   {
+      URL rootURL = getResource("/vfs/test");
+      VirtualFile root = VFS.getRoot(rootURL);
+      VirtualFile manifest = root.getChild("outer.jar/META-INF/MANIFEST.MF");
+      VirtualFile nested = root.getChild("outer.jar/jar1.jar/META-INF/MANIFEST.MF");
+      VirtualFile plain = root.getChild("jar1-filesonly.mf");
+
+      AccessProfile profile = AccessProfile.startRecording();
+      try
+      {
+         try
+         {
+            AccessProfile.startRecording();
+            fail("Should not be here");
+         }
+         catch (IllegalStateException expected)
+         {
+         }
+         nested.getBytes();
+         manifest.openStream().close();
+         nested.getBytes();
+         plain.getBuffer();
+      }
+      finally
+      {
+         profile.stopRecording();
+      }
+      manifest.getBytes();
+      root.getChild("jar2.jar").openStream().close();
+
+      List<String> urls = new ArrayList<String>();
+      urls.add(nested.toURL().toString());
+      urls.add(manifest.toURL().toString());
+      urls.add(plain.toURL().toString());
+      assertEquals(urls, profile.getURLs());
+
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      profile.write(baos);
+      profile = AccessProfile.read(new ByteArrayInputStream(baos.toByteArray()));
+      assertEquals(urls, profile.getURLs());
+
+      urls.add(new URL(rootURL, "missing.jar").toString());
+      WarmupFuture replay = VFS.preload(new AccessProfile(urls));
+      assertEquals(3, replay.get().intValue());
+      assertEquals(3, replay.getIndexedCount());
+      assertEquals(nested.getSize() + manifest.getSize() + plain.getSize(), replay.getPrefetchedBytes());
+   }
+
+   /**
+    * Test looking up several children at once matches looking them up one by one.
+    *
+    * @throws Exception
+    */
+   public void testChildrenByPath()
+      throws Exception
+   {
+      URL rootURL = getResource("/vfs/test");
+      VirtualFile root = VFS.getRoot(rootURL);
+
+      List<String> paths = new ArrayList<String>();
+      paths.add("outer.jar/META-INF/MANIFEST.MF");
+      paths.add("outer.jar/org/jboss/test/vfs/support/CommonClass.class");
+      paths.add("outer.jar/jar1.jar/META-INF/MANIFEST.MF");
+      paths.add("outer.jar/org/missing.class");
+      paths.add("jar1.jar/../jar2.jar");
+      paths.add("nested");
+      paths.add("missing.txt");
+
+      Map<String, VirtualFile> children = root.getChildrenByPath(paths);
+      List<String> found = new ArrayList<String>();
+      for (String path : paths)
+      {
+         VirtualFile child = root.getChild(path);
+         assertEquals(path, child, children.get(path));
+         if (child != null)
+            found.add(path);
+      }
+      assertEquals(found, new ArrayList<String>(children.keySet()));
+      assertEquals(5, found.size());
+   }
+
+   /**
+    * Test the asynchronous operations give the same results as the blocking ones.
+    *
+    * @throws Exception
+    */
+   public void testAsyncOperations()
+      throws Exception
+   {
+      URL rootURL = getResource("/vfs/test");
+      VirtualFile root = VFS.getRootAsync(rootURL).get();
+      assertEquals(VFS.getRoot(rootURL).getName(), root.getName());
+
+      VirtualFile outer = root.getChildAsync("outer.jar").get();
+      assertNotNull(outer);
+      assertNull(root.getChildAsync("missing.txt").get());
+      assertEquals(outer.getChildren(), outer.getChildrenAsync(null).get());
+
+      VirtualFile manifest = outer.getChild("META-INF/MANIFEST.MF");
+      byte[] bytes = manifest.getBytesAsync().get();
+      assertTrue(Arrays.equals(manifest.getBytes(), bytes));
+      InputStream in = manifest.openStreamAsync().get();
+      try
+      {
+         ByteArrayOutputStream baos = new ByteArrayOutputStream();
+         VFSUtils.copyStream(in, baos);
+         assertTrue(Arrays.equals(bytes, baos.toByteArray()));
+      }
+      finally
+      {
+         in.close();
+      }
+
+      try
+      {
+         VFS.getRootAsync(new File("/missing/testAsyncOperations.jar").toURL()).get();
+         fail("Should not be here");
+      }
+      catch (ExecutionException e)
+      {
+         assertNotNull(e.getCause());
+      }
+   }
+
+   /**
+    * Test reading and transferring plain files and stored or deflated entries.
+    *
+    * @throws Exception
+    */
+   public void testOpenChannel()
+      throws Exception
+   {
+      File tmpRoot = File.createTempFile("vfs", ".root");
+      tmpRoot.delete();
+      tmpRoot.mkdir();
+      File plain = new File(tmpRoot, "plain.bin");
+      File jar = new File(tmpRoot, "channel.jar");
+      try
+      {
+         byte[] content = new byte[20000];
+         for (int i = 0; i < content.length; ++i)
+            content[i] = (byte) (i * 31 + i / 256);
+
+         FileOutputStream fos = new FileOutputStream(plain);
+         fos.write(content);
+         fos.close();
+
+         JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar));
+         JarEntry stored = new JarEntry("stored.bin");
+         stored.setMethod(JarEntry.STORED);
+         stored.setSize(content.length);
+         CRC32 crc = new CRC32();
+         crc.update(content);
+         stored.setCrc(crc.getValue());
+         jos.putNextEntry(stored);
+         jos.write(content);
+         jos.closeEntry();
+         jos.putNextEntry(new JarEntry("deflated.bin"));
+         jos.write(content);
+         jos.closeEntry();
+         jos.close();
+
+         VirtualFile root = VFS.getRoot(tmpRoot.toURL());
+         String[] paths = {"plain.bin", "channel.jar/stored.bin", "channel.jar/deflated.bin"};
+         for (String path : paths)
+         {
+            VirtualFileChannel channel = root.getChild(path).openChannel();
+            try
+            {
+               assertEquals(path, content.length, channel.size());
+               assertChannelContent(path, content, channel, 15000, 1000);
+               assertChannelContent(path, content, channel, 10, 500);
+               assertChannelContent(path, content, channel, 19990, 10);
+               channel.position(content.length + 10);
+               assertEquals(path, -1, channel.read(ByteBuffer.allocate(10)));
+            }
+            finally
+            {
+               channel.close();
+            }
+            assertFalse(path, channel.isOpen());
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            assertEquals(path, content.length, root.getChild(path).transferTo(baos));
+            assertTrue(path, Arrays.equals(content, baos.toByteArray()));
+            assertTrue(path, Arrays.equals(content, root.getChild(path).getBytes()));
+            ByteBuffer buffer = root.getChild(path).getBuffer();
+            assertEquals(path, content.length, buffer.remaining());
+            for (int i = 0; i < content.length; ++i)
+               assertEquals(path + "@" + i, content[i], buffer.get(i));
+         }
+      }
+      finally
+      {
+         plain.delete();
+         jar.delete();
+         tmpRoot.delete();
+      }
+   }
+
+   /**
+    * Test a change to a link made before its first modification check is reported.
+    *
+    * @throws Exception
+    */
+   public void testLinkModifiedBeforeFirstCheck()
+      throws Exception
+   {
+      File tmpRoot = File.createTempFile("vfs", ".root");
+      tmpRoot.delete();
+      tmpRoot.mkdir();
+      File target = new File(tmpRoot, "target");
+      target.mkdir();
+      File props = new File(tmpRoot, "alias.vfslink.properties");
+      try
+      {
+         PrintWriter pw = new PrintWriter(props);
+         pw.println("vfs.link.name.0=linked");
+         pw.println("vfs.link.target.0=" + target.toURI());
+         pw.close();
+
+         VirtualFile link = VFS.getRoot(tmpRoot.toURL()).getChild("alias");
+         assertNotNull(link);
+         long lastModified = link.getLastModified();
+         assertTrue(props.setLastModified(lastModified + 10000));
+         assertTrue(link.hasBeenModified());
+         assertFalse(link.hasBeenModified());
+      }
+      finally
+      {
+         props.delete();
+         target.delete();
+         tmpRoot.delete();
+      }
+   }
+
+   /**
+    * Test transferring to a non-blocking target that fills up.
+    *
+    * @throws Exception
+    */
+   public void testTransferToNonBlocking()
+      throws Exception
+   {
+      File tmpRoot = File.createTempFile("vfs", ".root");
+      tmpRoot.delete();
+      tmpRoot.mkdir();
+      File plain = new File(tmpRoot, "plain.bin");
+      File jar = new File(tmpRoot, "channel.jar");
+      try
+      {
+         final byte[] content = new byte[1024 * 1024 + 7];
+         for (int i = 0; i < content.length; ++i)
+            content[i] = (byte) (i % 253);
+
+         FileOutputStream fos = new FileOutputStream(plain);
+         fos.write(content);
+         fos.close();
+
+         JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar));
+         jos.putNextEntry(new JarEntry("deflated.bin"));
+         jos.write(content);
+         jos.closeEntry();
+         jos.close();
+
+         VirtualFile root = VFS.getRoot(tmpRoot.toURL());
+         String[] paths = {"plain.bin", "channel.jar/deflated.bin"};
+         for (String path : paths)
+         {
+            Pipe pipe = Pipe.open();
+            final Pipe.SourceChannel source = pipe.source();
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            Thread reader = new Thread()
+            {
+               public void run()
+               {
+                  try
+                  {
+                     // let the target fill up first
+                     Thread.sleep(100);
+                     ByteBuffer buffer = ByteBuffer.allocate(8192);
+                     while (baos.size() < content.length && source.read(buffer) >= 0)
+                     {
+                        baos.write(buffer.array(), 0, buffer.position());
+                        buffer.clear();
+                     }
+                  }
+                  catch (Exception ignored)
+                  {
+                  }
+               }
+            };
+            reader.start();
+
+            Pipe.SinkChannel sink = pipe.sink();
+            sink.configureBlocking(false);
+            try
+            {
+               assertEquals(path, content.length, root.getChild(path).transferTo(sink));
+            }
+            finally
+            {
+               sink.close();
+            }
+            reader.join(10000);
+            source.close();
+            assertTrue(path, Arrays.equals(content, baos.toByteArray()));
+         }
+      }
+      finally
+      {
+         plain.delete();
+         jar.delete();
+         tmpRoot.delete();
+      }
+   }
+
+   /**
+    * Test the buffer of a large plain file is memory mapped, its stream is not.
+    *
+    * @throws Exception
+    */
+   public void testMappedRead()
+      throws Exception
+   {
+      File tmp = File.createTempFile("testMappedRead", ".bin");
+      try
+      {
+         byte[] content = new byte[2 * 1024 * 1024 + 17];
+         for (int i = 0; i < content.length; ++i)
+            content[i] = (byte) (i % 251);
+         FileOutputStream fos = new FileOutputStream(tmp);
+         fos.write(content);
+         fos.close();
+
+         VirtualFile file = VFS.getRoot(tmp.toURL());
+         ByteBuffer buffer = file.getBuffer();
+         assertTrue(buffer.isDirect());
+         assertTrue(buffer.isReadOnly());
+         assertEquals(content.length, buffer.remaining());
+
+         InputStream in = file.openStream();
+         try
+         {
+            assertTrue(in instanceof FileInputStream);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            VFSUtils.copyStream(in, baos);
+            assertTrue(Arrays.equals(content, baos.toByteArray()));
+         }
+         finally
+         {
+            in.close();
+         }
+      }
+      finally
+      {
+         tmp.delete();
+      }
+   }
+
+   private static void assertChannelContent(String path, byte[] content, VirtualFileChannel channel, int position, int length)
+      throws Exception
+   {
+      channel.position(position);
+      ByteBuffer buffer = ByteBuffer.allocate(length);
+      while (buffer.hasRemaining() && channel.read(buffer) > 0);
+      assertEquals(path, position + length, channel.position());
+      for (int i = 0; i < length; ++i)
+         assertEquals(path + "@" + (position + i), content[position + i], buffer.get(i));
+   }
+
+   /**
+    * Test the bulk attributes match the single ones.
+    *
+    * @throws Exception
+    */
+   public void testAttributes()
+      throws Exception
+   {
+      URL rootURL = getResource("/vfs/test");
+      VFS vfs = VFS.getVFS(rootURL);
+
+      List<VirtualFile> files = vfs.getChildrenRecursively();
+      files.add(vfs.getRoot());
+      for (VirtualFile file : files)
+      {
+         VirtualFileAttributes attributes = file.getAttributes();
+         String name = file.getPathName();
+         assertEquals(name, file.exists(), attributes.exists());
+         assertEquals(name, file.isLeaf(), attributes.isLeaf());
+         assertEquals(name, file.isHidden(), attributes.isHidden());
+         assertEquals(name, file.getSize(), attributes.getSize());
+         assertEquals(name, file.getLastModified(), attributes.getLastModified());
+      }
+
+      File tmp = File.createTempFile("testAttributes", ".txt");
+      VirtualFile missing = VFS.getRoot(tmp.toURL());
+      assertTrue(missing.getAttributes().exists());
+      assertTrue(tmp.delete());
+      assertEquals(VirtualFileAttributes.MISSING, missing.getAttributes());
+   }
+
+   /**
+    * Test an archive in a directory listing is only mounted when looked into.
+    *
+    * @throws Exception
+    */
+   public void testDeferredArchiveMount()
+      throws Exception
+   {
+      URL rootURL = getResource("/vfs/test");
+      FileSystemContext context = new FileSystemContext(rootURL);
+      VirtualFileHandler jar = context.getRoot().getChild("jar1.jar");
+      assertTrue(jar instanceof DeferredZipHandler);
+      DeferredZipHandler deferred = (DeferredZipHandler) jar;
+      assertFalse(deferred.isMounted());
+
+      File file = new File(rootURL.toURI().getPath(), "jar1.jar");
+      assertTrue(jar.exists());
+      assertFalse(jar.isLeaf());
+      assertEquals(file.length(), jar.getSize());
+      assertEquals(file.lastModified(), jar.getLastModified());
+      assertFalse(deferred.isMounted());
+
+      VirtualFileHandler manifest = jar.getChild("META-INF/MANIFEST.MF");
+      assertNotNull(manifest);
+      assertTrue(deferred.isMounted());
+      assertEquals(file.length(), jar.getSize());
+
+      VirtualFileHandler again = context.getRoot().getChild("jar1.jar");
+      assertEquals(jar, again);
+      assertEquals(jar.hashCode(), again.hashCode());
+   }
+
+   /**
+    * Test a deferred archive that is not a zip is a leaf before and after mounting.
+    *
+    * @throws Exception
+    */
+   public void testDeferredInvalidArchive()
+      throws Exception
+   {
+      File tmpRoot = File.createTempFile("vfs", ".root");
+      tmpRoot.delete();
+      tmpRoot.mkdir();
+      File tmpJar = new File(tmpRoot, "invalid.jar");
+      FileOutputStream fos = new FileOutputStream(tmpJar);
+      fos.write("not an archive".getBytes());
+      fos.close();
+      try
+      {
+         FileSystemContext context = new FileSystemContext(tmpRoot.toURL());
+         DeferredZipHandler jar = (DeferredZipHandler) context.getRoot().getChild("invalid.jar");
+         assertTrue(jar.isLeaf());
+         assertTrue(jar.getAttributes().isLeaf());
+         assertFalse(jar.isMounted());
+
+         assertEquals("not an archive", new String(jar.getBytes()));
+         assertTrue(jar.isMounted());
+         assertTrue(jar.isLeaf());
+      }
+      finally
+      {
+         tmpJar.delete();
+         tmpRoot.delete();
+      }
+   }
+
    /**
     * Test VirtualFile.exists for vfsjar based urls.
     * 
@@ -1674,4 +2308,41 @@ public class FileVFSUnitTestCase extends AbstractVFSTest
       child = root.getChild(path);
       assertTrue("getChild('" + path + "')", child == null);
    }
+
+   /**
+    * Test <em>caseSensitive=true</em> keeps up with files created after a lookup.
+    *
+    * @throws Exception for any error
+    */
+   public void testCaseSensitiveNewFile() throws Exception
+   {
+      File tmpRoot = File.createTempFile("vfs", ".root");
+      tmpRoot.delete();
+      tmpRoot.mkdir();
+      try
+      {
+         assertTrue(new File(tmpRoot, "First.txt").createNewFile());
+
+         FileSystemContext ctx = new FileSystemContext(new URL(tmpRoot.toURL() + "?caseSensitive=true"));
+         VirtualFileHandler root = ctx.getRoot();
+         assertNotNull(root.getChild("First.txt"));
+         assertNull(root.getChild("FIRST.txt"));
+         assertNull(root.getChild("Second.txt"));
+
+         // created straight away, possibly within the directory's timestamp granularity
+         assertTrue(new File(tmpRoot, "Second.txt").createNewFile());
+         assertNotNull(root.getChild("Second.txt"));
+         assertNull(root.getChild("SECOND.txt"));
+      }
+      finally
+      {
+         File[] files = tmpRoot.listFiles();
+         if (files != null)
+         {
+            for (File file : files)
+               file.delete();
+         }
+         tmpRoot.delete();
+      }
+   }
 }
@@ -27,6 +27,7 @@ import java.net.URL;
 import junit.framework.Test;
 import org.jboss.virtual.VFS;
 import org.jboss.virtual.VirtualFile;
+import org.jboss.virtual.VirtualPath;
 
 /**
  * Test path tokens.
@@ -103,4 +104,38 @@ public class PathTokensTestCase extends AbstractVFSTest
       testValidPath("//context///jar//");
       testValidPath("//context///jar///");
    }
+
+   public void testVirtualPath() throws Throwable
+   {
+      VirtualPath path = new VirtualPath("//context/./jar/../jar//archive.jar/");
+      assertEquals(6, path.size());
+      assertEquals("context", path.getToken(0));
+      assertTrue(path.isCurrentToken(1));
+      assertTrue(path.isReverseToken(3));
+      assertEquals("jar/archive.jar", path.getRemainingPath(4));
+      assertTrue(new VirtualPath("//").isEmpty());
+
+      try
+      {
+         new VirtualPath("/..somemorepath");
+         fail("Should not be here");
+      }
+      catch (Throwable t)
+      {
+         assertInstanceOf(t, IllegalArgumentException.class, false);
+      }
+   }
+
+   public void testVirtualPathLookup() throws Throwable
+   {
+      VirtualFile root = VFS.getRoot(getResource("/vfs"));
+      String[] paths = {"context/file/simple/child", "//context/jar/archive.jar/child", "context/./jar/../jar/archive.jar", "", "context/nosuch"};
+      for (String path : paths)
+      {
+         VirtualPath virtualPath = new VirtualPath(path);
+         assertEquals(path, root.getChild(path), root.getChild(virtualPath));
+         // reusable
+         assertEquals(path, root.getChild(path), root.getChild(virtualPath));
+      }
+   }
 }
\ No newline at end of file
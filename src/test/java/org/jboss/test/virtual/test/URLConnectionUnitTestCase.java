@@ -22,11 +22,15 @@
 package org.jboss.test.virtual.test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.Arrays;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 import junit.framework.Test;
 import org.jboss.virtual.VFS;
@@ -115,6 +119,44 @@ public class URLConnectionUnitTestCase extends AbstractVFSTest
       assertTrue(Arrays.equals(readBytes(file.openStream()), readBytes(conn.getInputStream())));
    }
 
+   /**
+    * Test an archive url still resolves once the archive is replaced by a directory.
+    *
+    * @throws Exception for any error
+    */
+   public void testArchiveReplacedByDirectory() throws Exception
+   {
+      File root = File.createTempFile("testArchiveReplacedByDirectory", ".root");
+      root.delete();
+      assertTrue(root.mkdir());
+      File archive = new File(root, "replaced.jar");
+      try
+      {
+         JarOutputStream jos = new JarOutputStream(new FileOutputStream(archive));
+         jos.putNextEntry(new JarEntry("entry.txt"));
+         jos.write("archive".getBytes());
+         jos.close();
+
+         URL url = new URL("vfszip:" + archive.getPath() + "/entry.txt");
+         assertEquals("archive", new String(readBytes(url.openStream())));
+         assertEquals("archive", new String(readBytes(url.openStream())));
+
+         assertTrue(archive.delete());
+         assertTrue(archive.mkdir());
+         FileOutputStream fos = new FileOutputStream(new File(archive, "entry.txt"));
+         fos.write("directory".getBytes());
+         fos.close();
+
+         assertEquals("directory", new String(readBytes(url.openStream())));
+      }
+      finally
+      {
+         new File(archive, "entry.txt").delete();
+         archive.delete();
+         root.delete();
+      }
+   }
+
    protected static byte[] readBytes(InputStream inputStream) throws Exception
    {
       ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -125,7 +167,8 @@ public class URLConnectionUnitTestCase extends AbstractVFSTest
          while (read >=0)
          {
             read = inputStream.read(bytes);
-            baos.write(bytes);
+            if (read > 0)
+               baos.write(bytes, 0, read);
          }
       }
       finally
@@ -81,6 +81,11 @@ public class VFSAllTestSuite extends TestSuite
       suite.addTest(TempTestCase.suite());
       // visitor
       suite.addTest(VisitorUnitTestCase.suite());
+      // changes
+      suite.addTest(ChangeListenerTestCase.suite());
+      // context reuse
+      suite.addTest(ContextRegistryTestCase.suite());
+      suite.addTest(VFSURLCacheTestCase.suite());
       // utils
       suite.addTest(VFSUtilTestCase.suite());
       // custom
@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2007, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.test.virtual.test;
+
+import java.io.InputStream;
+import java.net.URL;
+
+import junit.framework.Test;
+import org.jboss.virtual.VFS;
+import org.jboss.virtual.VirtualFile;
+import org.jboss.virtual.plugins.vfs.VFSURLCache;
+import org.jboss.virtual.plugins.vfs.VirtualFileURLConnection;
+
+/**
+ * Test the vfs url cache.
+ *
+ * @version $Revision: 1.1 $
+ */
+public class VFSURLCacheTestCase extends AbstractVFSTest
+{
+   public VFSURLCacheTestCase(String name)
+   {
+      super(name);
+   }
+
+   public static Test suite()
+   {
+      return suite(VFSURLCacheTestCase.class);
+   }
+
+   public void testHitsAndMisses() throws Exception
+   {
+      VFSURLCache cache = new VFSURLCache(10, 0);
+      URL url = getResource("/vfs/test");
+      VFS vfs = VFS.getVFS(url);
+
+      assertNull(cache.get(url));
+      cache.put(url, vfs);
+      assertSame(vfs, cache.get(url));
+      assertSame(vfs, cache.get(new URL(url.toExternalForm())));
+      assertEquals(2, cache.getHits());
+      assertEquals(1, cache.getMisses());
+
+      assertTrue(cache.invalidate(url));
+      assertNull(cache.get(url));
+      assertEquals(1, cache.getEvictions());
+      assertEquals(2, cache.getMisses());
+   }
+
+   public void testSizeBound() throws Exception
+   {
+      VFSURLCache cache = new VFSURLCache(10, 0);
+      VFS vfs = VFS.getVFS(getResource("/vfs/test"));
+      for (int i = 0; i < 50; ++i)
+      {
+         cache.put(new URL("vfsfile:/bound/" + i), vfs);
+         assertTrue(cache.size() <= 10);
+      }
+      assertTrue(cache.getEvictions() >= 40);
+      // the most recent survive
+      assertSame(vfs, cache.get(new URL("vfsfile:/bound/49")));
+   }
+
+   public void testIdleTime() throws Exception
+   {
+      VFSURLCache cache = new VFSURLCache(10, 50);
+      URL url = getResource("/vfs/test");
+      cache.put(url, VFS.getVFS(url));
+      Thread.sleep(100);
+      assertNull(cache.get(url));
+      assertEquals(0, cache.size());
+      assertEquals(1, cache.getEvictions());
+   }
+
+   public void testDisabled() throws Exception
+   {
+      VFSURLCache cache = new VFSURLCache(0, 0);
+      URL url = getResource("/vfs/test");
+      cache.put(url, VFS.getVFS(url));
+      assertNull(cache.get(url));
+      assertEquals(0, cache.size());
+   }
+
+   public void testURLConnectionUsesCache() throws Exception
+   {
+      VirtualFile file = VFS.getRoot(getResource("/vfs/test")).findChild("jar1.jar");
+      URL url = file.toURL();
+      VirtualFileURLConnection.urlCache.clear();
+      long hits = VirtualFileURLConnection.urlCache.getHits();
+
+      InputStream in = url.openStream();
+      in.close();
+      in = url.openStream();
+      in.close();
+      assertTrue(VirtualFileURLConnection.urlCache.getHits() > hits);
+   }
+}
@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import junit.framework.Test;
@@ -1006,6 +1007,28 @@ public class VFSUnitTestCase extends AbstractMockVFSTest
       assertEquals(expected, children);
    }
 
+   public void testIterateChildrenRecursivelyStructured() throws Exception
+   {
+      MockVFSContext context = registerStructuredVFSContextWithSubChildren();
+      
+      VFS vfs = VFS.getVFS(context.getRootURI());
+      List<VirtualFile> expected = vfs.getChildrenRecursively();
+      
+      List<VirtualFile> children = new ArrayList<VirtualFile>();
+      for (VirtualFile child : vfs.iterateChildrenRecursively(null))
+         children.add(child);
+      assertEquals(expected, children);
+
+      children.clear();
+      for (VirtualFile child : vfs.iterateChildren(null))
+         children.add(child);
+      assertEquals(vfs.getChildren(), children);
+
+      Iterator<VirtualFile> iterator = vfs.iterateChildrenRecursively(null).iterator();
+      assertEquals(expected.get(0), iterator.next());
+      assertEquals(expected.get(1), iterator.next());
+   }
+
    public void testGetAllChildrenRecursivelyNoChildren() throws Exception
    {
       MockVFSContext context = registerSimpleVFSContext();
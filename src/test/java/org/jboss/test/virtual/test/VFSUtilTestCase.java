@@ -21,15 +21,24 @@
 */
 package org.jboss.test.virtual.test;
 
+import java.io.ByteArrayInputStream;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
 
+import junit.framework.AssertionFailedError;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import org.jboss.virtual.VFS;
 import org.jboss.virtual.VirtualFile;
 import org.jboss.virtual.VFSUtils;
+import org.jboss.virtual.VirtualFileFilter;
+import org.jboss.virtual.VisitorAttributes;
+import org.jboss.virtual.plugins.vfs.helpers.FilterVirtualFileVisitor;
+import org.jboss.virtual.plugins.vfs.helpers.MatchAllVirtualFileFilter;
+import org.jboss.virtual.spi.VirtualFileHandler;
+import org.jboss.virtual.spi.VirtualFileHandlerFilter;
 
 /**
  * VFSUtilTestCase.
@@ -58,4 +67,45 @@ public class VFSUtilTestCase extends AbstractMockVFSTest
       VFSUtils.addManifestLocations(file, paths);
       assertEquals(3, paths.size());
    }
-}
\ No newline at end of file
+
+   public void testReadBytesAndClose() throws Throwable
+   {
+      byte[] bytes = "0123456789".getBytes();
+      assertTrue(Arrays.equals(bytes, VFSUtils.readBytesAndClose(new ByteArrayInputStream(bytes), 10)));
+      assertTrue(Arrays.equals(bytes, VFSUtils.readBytesAndClose(new ByteArrayInputStream(bytes), -1)));
+      assertTrue(Arrays.equals(bytes, VFSUtils.readBytesAndClose(new ByteArrayInputStream(bytes), 4)));
+      assertTrue(Arrays.equals(bytes, VFSUtils.readBytesAndClose(new ByteArrayInputStream(bytes), 20)));
+      assertEquals(0, VFSUtils.readBytesAndClose(new ByteArrayInputStream(new byte[0]), 0).length);
+   }
+
+   public void testHandlerFilter() throws Throwable
+   {
+      URL url = getResource("/vfs/test");
+      VFS vfs = VFS.getVFS(url);
+
+      HandlerFilter recurseFilter = new HandlerFilter();
+      VisitorAttributes attributes = new VisitorAttributes();
+      attributes.setRecurseFilter(recurseFilter);
+      FilterVirtualFileVisitor visitor = new FilterVirtualFileVisitor(MatchAllVirtualFileFilter.INSTANCE, attributes);
+      vfs.visit(visitor);
+
+      assertEquals(vfs.getChildrenRecursively(), visitor.getMatched());
+      assertTrue(recurseFilter.handlers > 0);
+   }
+
+   private static class HandlerFilter implements VirtualFileFilter, VirtualFileHandlerFilter
+   {
+      private int handlers;
+
+      public boolean accepts(VirtualFile file)
+      {
+         throw new AssertionFailedError("Should not be asked about " + file);
+      }
+
+      public boolean accepts(VirtualFileHandler handler)
+      {
+         handlers++;
+         return true;
+      }
+   }
+}
@@ -27,10 +27,21 @@ import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import junit.framework.Test;
 import org.jboss.virtual.VFS;
+import org.jboss.virtual.VFSSession;
 import org.jboss.virtual.VFSUtils;
+import org.jboss.virtual.VirtualFile;
 import org.jboss.virtual.plugins.context.file.FileSystemContext;
 import org.jboss.virtual.plugins.context.jar.JarUtils;
 import org.jboss.virtual.plugins.context.zip.ZipEntryContext;
@@ -91,6 +102,175 @@ public class ZipEntryVFSContextUnitTestCase extends JARVFSContextUnitTestCase
       assertFalse("context.getRoot().exists()", context.getRoot().exists());
    }
 
+   /**
+    * Test multi-segment lookups resolve the same as walking one segment at a time,
+    * also when crossing into a nested archive.
+    *
+    * @throws Exception for any error
+    */
+   public void testDeepChildLookup() throws Exception
+   {
+      ZipEntryContext context = new ZipEntryContext(getResource("/vfs/test/outer.jar"));
+      VirtualFileHandler root = context.getRoot();
+
+      String[] paths = {
+            "org/jboss/test/vfs/support/CommonClass.class",
+            "org/jboss/test/vfs/support/jar1",
+            "org/jboss/../jboss/test/vfs/support/CommonClass.class",
+            "jar1.jar/META-INF/MANIFEST.MF",
+            "org/jboss/test/nosuch/CommonClass.class",
+            "jar1.jar/nosuch"
+      };
+      for (int i = 0; i < paths.length; ++i)
+      {
+         String path = paths[i];
+         VirtualFileHandler walked = root;
+         for (String token : path.split("/"))
+         {
+            if (walked == null)
+               break;
+            walked = "..".equals(token) ? walked.getParent() : walked.getChild(token);
+         }
+         VirtualFileHandler found = root.getChild(path);
+         assertEquals(path, walked, found);
+         // the first four exist
+         assertEquals(path, i < 4, found != null);
+      }
+
+      VirtualFileHandler support = root.getChild("org/jboss/test/vfs/support");
+      assertEquals(root.getChild("org/jboss/test/vfs/support/CommonClass.class"), support.getChild("CommonClass.class"));
+   }
+
+   /**
+    * Test many threads opening the same archive and reading its entries at once
+    * see the same contents as a single thread does.
+    *
+    * @throws Exception for any error
+    */
+   public void testConcurrentReads() throws Exception
+   {
+      URL url = getResource("/vfs/test/outer.jar");
+      final Map<String, byte[]> expected = new HashMap<String, byte[]>();
+      for (VirtualFile file : VFS.getRoot(url).getChildrenRecursively())
+      {
+         if (file.isLeaf())
+            expected.put(file.getPathName(), file.getBytes());
+      }
+      assertFalse(expected.isEmpty());
+
+      final VFS vfs = new VFS(new ZipEntryContext(url));
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try
+      {
+         List<Future<Object>> results = new ArrayList<Future<Object>>();
+         for (int i = 0; i < 16; ++i)
+         {
+            results.add(executor.submit(new Callable<Object>()
+            {
+               public Object call() throws Exception
+               {
+                  for (Map.Entry<String, byte[]> entry : expected.entrySet())
+                  {
+                     VirtualFile file = vfs.getChild(entry.getKey());
+                     InputStream in = file.openStream();
+                     try
+                     {
+                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                        VFSUtils.copyStream(in, baos);
+                        assertTrue(entry.getKey(), Arrays.equals(entry.getValue(), baos.toByteArray()));
+                     }
+                     finally
+                     {
+                        in.close();
+                     }
+                  }
+                  return null;
+               }
+            }));
+         }
+         for (Future<Object> result : results)
+            result.get();
+      }
+      finally
+      {
+         executor.shutdown();
+      }
+   }
+
+   /**
+    * Test an archive replaced during a session is only re-read once the session is closed.
+    *
+    * @throws Exception for any error
+    */
+   public void testSession() throws Exception
+   {
+      File tmpJar = File.createTempFile("vfstest", ".jar");
+      try
+      {
+         VFSUtils.copyStreamAndClose(getResource("/vfs/test/outer.jar").openStream(), new FileOutputStream(tmpJar));
+
+         String path = "org/jboss/test/vfs/support/CommonClass.class";
+         VFSSession session = VFS.openSession();
+         try
+         {
+            ZipEntryContext context = new ZipEntryContext(tmpJar.toURL());
+            VirtualFileHandler root = context.getRoot();
+            VirtualFileHandler child = root.getChild(path);
+            assertNotNull(child);
+
+            // touch rather than replace the archive, an open file cannot be replaced on all platforms
+            assertTrue(tmpJar.setLastModified(tmpJar.lastModified() + 10000));
+            Thread.sleep(1100);
+            assertSame(child, root.getChild(path));
+            assertTrue(child.getBytes().length > 0);
+
+            session.close();
+            assertNotSame(child, root.getChild(path));
+         }
+         finally
+         {
+            session.close();
+         }
+      }
+      finally
+      {
+         tmpJar.delete();
+      }
+   }
+
+   /**
+    * Test a session that is never closed releases its archives once collected.
+    *
+    * @throws Exception for any error
+    */
+   public void testSessionNotClosed() throws Exception
+   {
+      File tmpJar = File.createTempFile("vfstest", ".jar");
+      try
+      {
+         VFSUtils.copyStreamAndClose(getResource("/vfs/test/outer.jar").openStream(), new FileOutputStream(tmpJar));
+
+         String path = "org/jboss/test/vfs/support/CommonClass.class";
+         VFS.openSession();
+         ZipEntryContext context = new ZipEntryContext(tmpJar.toURL());
+         VirtualFileHandler root = context.getRoot();
+         VirtualFileHandler child = root.getChild(path);
+         assertNotNull(child);
+
+         assertTrue(tmpJar.setLastModified(tmpJar.lastModified() + 10000));
+         for (int i = 0; i < 10 && child == root.getChild(path); ++i)
+         {
+            System.gc();
+            Thread.sleep(1100);
+         }
+         assertNotSame(child, root.getChild(path));
+      }
+      finally
+      {
+         tmpJar.delete();
+      }
+   }
+
    /**
     * Test for proper handling when file appears to be an archive but
     * trying to handle it produces an exception. Proper behaviour